@@ -0,0 +1,116 @@
+package Benchmarks;
+
+//Import FIFOs
+import CommonInfra.BoundedIntFIFO;
+import CommonInfra.IntFIFO;
+import CommonInfra.MemFIFO;
+import CommonInfra.MpscIntFIFO;
+
+
+/**
+ * Throughput comparison of the FIFOs, with many writers (the arriving students)
+ * and one reader (the waiter), through a small buffer so that both sides block.
+ * For the condition based FIFO, the number of wake-ups is printed next to the
+ * number of transferred values: with one signal per operation they stay in the
+ * same order of magnitude instead of growing with the number of blocked threads.
+ * The lock-free FIFO is then checked at its smallest size, filled by two writers.
+ * Usage: <code>java Benchmarks.FIFOBenchmark [values] [writers] [size]</code>
+ * @author Daniel Nunes and Rafael Direito
+ */
+public class FIFOBenchmark
+{
+    public static void main(String[] args) throws InterruptedException
+    {
+        int values = args.length > 0 ? Integer.parseInt(args[0]) : 500000;
+        int writers = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int size = args.length > 2 ? Integer.parseInt(args[2]) : 7;
+        int share = values / writers;
+
+        //Monitor based FIFO, boxing every value.
+        MemFIFO<Integer> mem = new MemFIFO<>(size);
+        long nanos = run(writers, share,
+                v -> mem.write(v), () -> mem.read());
+        report("MemFIFO       ", share * writers, nanos);
+
+        //Condition based FIFO.
+        BoundedIntFIFO bounded = new BoundedIntFIFO(size);
+        nanos = run(writers, share, bounded::write, bounded::read);
+        report("BoundedIntFIFO", share * writers, nanos);
+        System.out.println("               " + bounded.stats());
+
+        //Lock-free FIFO.
+        IntFIFO mpsc = new MpscIntFIFO(size);
+        nanos = run(writers, share, mpsc::write, mpsc::read);
+        report("MpscIntFIFO   ", share * writers, nanos);
+
+        //The smallest lock-free FIFO must neither lose nor repeat values.
+        checkSmallRing(share);
+    }
+
+
+    /**
+     * Fills a lock-free FIFO of size one from two writers, checking that it
+     * reports itself full and that every value is read exactly once.
+     * @param share number of values of each writer
+     */
+    private static void checkSmallRing(int share) throws InterruptedException
+    {
+        MpscIntFIFO ring = new MpscIntFIFO(1);
+        int n = 0;
+        while (n <= 2 && ring.offer(n)) n++;
+        if (n == 0 || n > 2)
+            throw new IllegalStateException("FIFO of size one holds " + n + " values");
+        for (int i = 0; i < n; i++) ring.read();
+
+        //Writer w writes w, w + 2, w + 4, ...; each value is read once.
+        boolean[] seen = new boolean[2 * share];
+        Thread[] t = new Thread[2];
+        for (int w = 0; w < 2; w++)
+        {
+            int first = w;
+            t[w] = new Thread(() -> {
+                for (int i = 0; i < share; i++) ring.write(first + 2 * i);
+            });
+            t[w].start();
+        }
+        for (int i = 0; i < 2 * share; i++)
+        {
+            int v = ring.read();
+            if (v < 0 || v >= seen.length || seen[v])
+                throw new IllegalStateException("FIFO of size one read " + v + " twice or out of range");
+            seen[v] = true;
+        }
+        for (Thread th : t) th.join();
+        if (!ring.isEmpty())
+            throw new IllegalStateException("FIFO of size one holds values never written");
+        System.out.println("MpscIntFIFO    size one, two writers: " + 2 * share + " values, none lost");
+    }
+
+
+    private interface Writer { void write(int v); }
+    private interface Reader { int read(); }
+
+
+    private static long run(int writers, int share, Writer w, Reader r)
+            throws InterruptedException
+    {
+        Thread[] t = new Thread[writers];
+        for (int n = 0; n < writers; n++)
+            t[n] = new Thread(() -> {
+                for (int i = 0; i < share; i++) w.write(i);
+            });
+
+        long start = System.nanoTime();
+        for (Thread th : t) th.start();
+        for (int i = 0; i < share * writers; i++) r.read();
+        for (Thread th : t) th.join();
+        return System.nanoTime() - start;
+    }
+
+
+    private static void report(String name, int ops, long nanos)
+    {
+        System.out.printf("%s %12.0f ops/s %10.1f ns/op%n",
+                name, ops * 1e9 / nanos, (double) nanos / ops);
+    }
+}
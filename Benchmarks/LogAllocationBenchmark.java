@@ -0,0 +1,123 @@
+package Benchmarks;
+
+//Import shared repository
+import SharedRegions.SharedRepo;
+//Import entities states
+import Entities.States.ChefStates;
+import Entities.States.StudentStates;
+import Entities.States.WaiterStates;
+//Import problem's parameters
+import Main.RestaurantConfig;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+
+/**
+ * Bytes allocated per million state transitions written to the log.
+ * The transitions go through {@link SharedRepo}, as the entities do, and the
+ * allocation of every thread (including the log writer thread, in asynchronous
+ * mode) is accounted. As a reference, the same lines are also built the way
+ * the log used to be written, padding a string for every column.
+ * Usage: <code>java Benchmarks.LogAllocationBenchmark [transitions]</code>
+ * @author Daniel Nunes and Rafael Direito
+ */
+public class LogAllocationBenchmark
+{
+    public static void main(String[] args) throws IOException
+    {
+        int transitions = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        RestaurantConfig config = new RestaurantConfig();
+        File file = File.createTempFile("RestaurantLog", ".txt");
+        file.deleteOnExit();
+
+        //Warm up, so that class loading and compilation are not accounted.
+        run(config, file.getPath(), transitions / 10);
+        reference(config.getNStudents(), transitions / 10);
+
+        report("SharedRepo (pre-rendered columns)", run(config, file.getPath(), transitions),
+                transitions);
+
+        long bytes = allocated();
+        reference(config.getNStudents(), transitions);
+        report("per-column strings (reference)   ", allocated() - bytes, transitions);
+    }
+
+
+    /**
+     * Writes the given number of transitions through a repository.
+     * @return bytes allocated while the log was open (the writer thread is
+     * still alive, so its allocation is accounted)
+     */
+    private static long run(RestaurantConfig config, String fileName, int transitions)
+    {
+        int nStudents = config.getNStudents();
+        SharedRepo repo = new SharedRepo(config);
+        ChefStates[] chef = ChefStates.values();
+        WaiterStates[] waiter = WaiterStates.values();
+        StudentStates[] student = StudentStates.values();
+
+        repo.writeHeader(fileName);
+        long bytes = allocated();
+        for (int i = 0; i < transitions; i++)
+            switch (i % 3)
+            {
+                case 0:
+                    repo.updateChefState(chef[i % chef.length]);
+                    break;
+                case 1:
+                    repo.updateWaiterState(waiter[i % waiter.length]);
+                    break;
+                default:
+                    repo.updateStudentState(student[i % student.length], i % nStudents);
+            }
+        bytes = allocated() - bytes;
+        repo.closeLog();
+        return bytes;
+    }
+
+
+    /**
+     * Builds the same lines padding a new string per column, without writing
+     * them.
+     */
+    private static void reference(int nStudents, int transitions)
+    {
+        StudentStates[] student = StudentStates.values();
+        long length = 0;
+
+        for (int i = 0; i < transitions; i++)
+        {
+            StringBuilder line = new StringBuilder();
+            line.append(String.format("%-16s", ChefStates.DISHPO.name()));
+            line.append(String.format("%-16s", WaiterStates.APPSIT.toString()));
+            for (int s = 0; s < nStudents; s++)
+                line.append(String.format("%-16s", student[(i + s) % student.length].toString()));
+            line.append('\n');
+            length += line.length();
+        }
+        if (length == 0) System.out.println();
+    }
+
+
+    /**
+     * Bytes allocated so far by every live thread.
+     */
+    private static long allocated()
+    {
+        com.sun.management.ThreadMXBean bean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long total = 0;
+        for (long b : bean.getThreadAllocatedBytes(bean.getAllThreadIds()))
+            if (b > 0) total += b;
+        return total;
+    }
+
+
+    private static void report(String name, long bytes, int transitions)
+    {
+        System.out.printf("%s %14.0f bytes per 1M transitions%n",
+                name, bytes * 1e6 / transitions);
+    }
+}
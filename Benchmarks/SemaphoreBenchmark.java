@@ -0,0 +1,155 @@
+package Benchmarks;
+
+//Import semaphores
+import CommonInfra.MonitorSemaphore;
+import CommonInfra.Semaphore;
+
+
+/**
+ * Throughput comparison between the monitor based semaphore and the
+ * <code>AbstractQueuedSynchronizer</code> based one.
+ * Two scenarios are measured: the ping-pong hand-off used between the chef and
+ * the waiter, and the <code>mutex</code> pattern used to guard every shared
+ * region, with several threads competing for it. The adaptive (spin then park)
+ * mode is only measured on the hand-off, which is what it is meant for.
+ * Usage: <code>java Benchmarks.SemaphoreBenchmark [iterations] [threads]</code>
+ * @author Daniel Nunes and Rafael Direito
+ */
+public class SemaphoreBenchmark
+{
+    /**
+     * Down / up operations of the semaphore under test.
+     */
+    private interface Sem
+    {
+        void down();
+        void up();
+    }
+
+
+    public static void main(String[] args) throws InterruptedException
+    {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+
+        //Warm up both implementations before measuring.
+        for (int r = 0; r < 2; r++)
+        {
+            pingPong(monitor(), monitor(), iterations / 10);
+            pingPong(aqs(false), aqs(false), iterations / 10);
+            pingPong(aqs(false, true), aqs(false, true), iterations / 10);
+            mutex(monitor(), threads, iterations / 10);
+            mutex(aqs(false), threads, iterations / 10);
+        }
+
+        report("ping-pong  monitor      ", iterations,
+                pingPong(monitor(), monitor(), iterations));
+        report("ping-pong  aqs non-fair ", iterations,
+                pingPong(aqs(false), aqs(false), iterations));
+        report("ping-pong  aqs fair     ", iterations,
+                pingPong(aqs(true), aqs(true), iterations));
+        report("ping-pong  aqs adaptive ", iterations,
+                pingPong(aqs(false, true), aqs(false, true), iterations));
+        report("mutex x" + threads + "   monitor      ", iterations,
+                mutex(monitor(), threads, iterations));
+        report("mutex x" + threads + "   aqs non-fair ", iterations,
+                mutex(aqs(false), threads, iterations));
+        report("mutex x" + threads + "   aqs fair     ", iterations,
+                mutex(aqs(true), threads, iterations));
+    }
+
+
+    /**
+     * Two threads alternate through a pair of semaphores, as the chef and the
+     * waiter do for every portion.
+     * @return elapsed time in nanoseconds
+     */
+    private static long pingPong(Sem ping, Sem pong, int iterations)
+            throws InterruptedException
+    {
+        Thread other = new Thread(() -> {
+            for (int i = 0; i < iterations; i++)
+            {
+                ping.down();
+                pong.up();
+            }
+        });
+
+        long start = System.nanoTime();
+        other.start();
+        for (int i = 0; i < iterations; i++)
+        {
+            ping.up();
+            pong.down();
+        }
+        other.join();
+        return System.nanoTime() - start;
+    }
+
+
+    /**
+     * Several threads enter and leave a critical region guarded by a semaphore
+     * used as a <code>mutex</code>.
+     * @return elapsed time in nanoseconds
+     */
+    private static long mutex(Sem mutex, int threads, int iterations)
+            throws InterruptedException
+    {
+        int[] counter = new int[1];
+        Thread[] t = new Thread[threads];
+        int share = iterations / threads;
+
+        mutex.up();
+        for (int n = 0; n < threads; n++)
+            t[n] = new Thread(() -> {
+                for (int i = 0; i < share; i++)
+                {
+                    mutex.down();
+                    counter[0]++;
+                    mutex.up();
+                }
+            });
+
+        long start = System.nanoTime();
+        for (Thread th : t) th.start();
+        for (Thread th : t) th.join();
+        long elapsed = System.nanoTime() - start;
+
+        if (counter[0] != share * threads)
+            throw new IllegalStateException("mutual exclusion violated");
+        return elapsed;
+    }
+
+
+    private static Sem monitor()
+    {
+        MonitorSemaphore s = new MonitorSemaphore();
+        return new Sem() {
+            public void down() { s.down(); }
+            public void up() { s.up(); }
+        };
+    }
+
+
+    private static Sem aqs(boolean fair)
+    {
+        return aqs(fair, false);
+    }
+
+
+    private static Sem aqs(boolean fair, boolean adaptive)
+    {
+        Semaphore s = new Semaphore(fair, adaptive);
+        return new Sem() {
+            public void down() { s.down(); }
+            public void up() { s.up(); }
+        };
+    }
+
+
+    private static void report(String name, int ops, long nanos)
+    {
+        System.out.printf("%s %12.0f ops/s %10.1f ns/op%n",
+                name, ops * 1e9 / nanos, (double) nanos / ops);
+    }
+}
@@ -0,0 +1,337 @@
+package CommonInfra;
+
+import java.util.OptionalInt;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ *    Bounded FIFO of primitive integers for many writers and many readers.
+ *    Writers wait on a not-full condition and readers on a not-empty condition, and
+ *    each operation signals a single thread of the other side, and only when there
+ *    is one waiting, instead of waking every blocked thread.
+ *    The number of signals and wake-ups is kept so the behaviour can be checked.
+ */
+
+public class BoundedIntFIFO extends IntFIFO
+{
+    /**
+     *   Internal storage area.
+     */
+
+    private final int [] mem;
+
+    /**
+     *   Pointer to the first empty location.
+     */
+
+    private int inPnt;
+
+    /**
+     *   Pointer to the first occupied location.
+     */
+
+    private int outPnt;
+
+    /**
+     *   Number of stored values.
+     */
+
+    private int count;
+
+    /**
+     *   Access lock and its conditions.
+     */
+
+    private final ReentrantLock lock = new ReentrantLock ();
+    private final Condition notFull = lock.newCondition (),
+                            notEmpty = lock.newCondition ();
+
+    /**
+     *   Number of threads blocked on each condition.
+     */
+
+    private int waitingWriters, waitingReaders;
+
+    /**
+     *   Statistics: signals sent and wake-ups of blocked writers and readers.
+     */
+
+    private long writerSignals, readerSignals,
+                 writerWakeups, readerWakeups;
+
+    /**
+     *   FIFO instantiation.
+     *   Sizes smaller than one are taken as one. No error is reported.
+     *
+     *     @param nElem FIFO size
+     */
+
+    public BoundedIntFIFO (int nElem)
+    {
+        mem = new int [Math.max (nElem, 1)];
+        inPnt = outPnt = count = 0;
+    }
+
+    /**
+     *   FIFO insertion.
+     *   If the FIFO is full, the writer blocks until there is room.
+     *
+     *    @param val value to be written
+     */
+
+    @Override
+    public void write (int val)
+    {
+        lock.lock ();
+        try
+        {
+            while (count == mem.length)
+                awaitNotFull ();
+            insert (val);
+        }
+        finally
+        {
+            lock.unlock ();
+        }
+    }
+
+    /**
+     *   Timed FIFO insertion.
+     *
+     *    @param val value to be written
+     *    @param timeout maximum time to wait for room
+     *    @param unit time unit of the timeout
+     *    @return <code>false</code> if the time elapsed with the FIFO still full
+     *    @throws InterruptedException if the calling thread is interrupted while blocked
+     */
+
+    public boolean offer (int val, long timeout, TimeUnit unit) throws InterruptedException
+    {
+        long nanos = unit.toNanos (timeout);
+        lock.lockInterruptibly ();
+        try
+        {
+            while (count == mem.length)
+            {
+                if (nanos <= 0) return false;
+                waitingWriters++;
+                try
+                {
+                    nanos = notFull.awaitNanos (nanos);
+                }
+                finally
+                {
+                    waitingWriters--;
+                    writerWakeups++;
+                }
+            }
+            insert (val);
+            return true;
+        }
+        finally
+        {
+            lock.unlock ();
+        }
+    }
+
+    /**
+     *   FIFO retrieval.
+     *   If the FIFO is empty, the reader blocks until a value is written.
+     *
+     *    @return first value that was written
+     */
+
+    @Override
+    public int read ()
+    {
+        lock.lock ();
+        try
+        {
+            while (count == 0)
+                awaitNotEmpty ();
+            return remove ();
+        }
+        finally
+        {
+            lock.unlock ();
+        }
+    }
+
+    /**
+     *   Timed FIFO retrieval.
+     *
+     *    @param timeout maximum time to wait for a value
+     *    @param unit time unit of the timeout
+     *    @return value read, or an empty optional if the time elapsed with the FIFO still
+     *    empty
+     *    @throws InterruptedException if the calling thread is interrupted while blocked
+     */
+
+    public OptionalInt poll (long timeout, TimeUnit unit) throws InterruptedException
+    {
+        long nanos = unit.toNanos (timeout);
+        lock.lockInterruptibly ();
+        try
+        {
+            while (count == 0)
+            {
+                if (nanos <= 0) return OptionalInt.empty ();
+                waitingReaders++;
+                try
+                {
+                    nanos = notEmpty.awaitNanos (nanos);
+                }
+                finally
+                {
+                    waitingReaders--;
+                    readerWakeups++;
+                }
+            }
+            return OptionalInt.of (remove ());
+        }
+        finally
+        {
+            lock.unlock ();
+        }
+    }
+
+    /**
+     *   Bulk FIFO retrieval, without blocking.
+     *   Every stored value, up to <code>max</code>, is moved in a single critical region.
+     *
+     *    @param dst array where the values are stored, from index zero
+     *    @param max maximum number of values to read
+     *    @return number of values read
+     */
+
+    @Override
+    public int drainTo (int [] dst, int max)
+    {
+        lock.lock ();
+        try
+        {
+            int n = Math.min (Math.min (max, dst.length), count);
+            for (int i = 0; i < n; i++)
+            {
+                dst[i] = mem[outPnt];
+                outPnt = (outPnt + 1) % mem.length;
+            }
+            count -= n;
+            for (int i = 0; i < n && i < waitingWriters; i++)
+            {
+                writerSignals++;
+                notFull.signal ();
+            }
+            return n;
+        }
+        finally
+        {
+            lock.unlock ();
+        }
+    }
+
+    /**
+     *   FIFO state.
+     *
+     *    @return <code>true</code> if there is nothing to be read
+     */
+
+    @Override
+    public boolean isEmpty ()
+    {
+        lock.lock ();
+        try
+        {
+            return count == 0;
+        }
+        finally
+        {
+            lock.unlock ();
+        }
+    }
+
+    /**
+     *   Statistics of the FIFO.
+     *
+     *    @return signals sent and wake-ups of the blocked writers and readers
+     */
+
+    public String stats ()
+    {
+        lock.lock ();
+        try
+        {
+            return "writer signals=" + writerSignals + " wakeups=" + writerWakeups
+                    + ", reader signals=" + readerSignals + " wakeups=" + readerWakeups;
+        }
+        finally
+        {
+            lock.unlock ();
+        }
+    }
+
+    /**
+     *   Number of wake-ups of blocked threads, writers and readers.
+     *
+     *    @return number of wake-ups
+     */
+
+    public long wakeups ()
+    {
+        lock.lock ();
+        try
+        {
+            return writerWakeups + readerWakeups;
+        }
+        finally
+        {
+            lock.unlock ();
+        }
+    }
+
+    /*
+     *  The methods below must be called with the lock held.
+     */
+
+    private void insert (int val)
+    {
+        mem[inPnt] = val;
+        inPnt = (inPnt + 1) % mem.length;
+        count++;
+        if (waitingReaders > 0)
+        {
+            readerSignals++;
+            notEmpty.signal ();
+        }
+    }
+
+    private int remove ()
+    {
+        int val = mem[outPnt];
+        outPnt = (outPnt + 1) % mem.length;
+        count--;
+        if (waitingWriters > 0)
+        {
+            writerSignals++;
+            notFull.signal ();
+        }
+        return val;
+    }
+
+    private void awaitNotFull ()
+    {
+        waitingWriters++;
+        notFull.awaitUninterruptibly ();
+        waitingWriters--;
+        writerWakeups++;
+    }
+
+    private void awaitNotEmpty ()
+    {
+        waitingReaders++;
+        notEmpty.awaitUninterruptibly ();
+        waitingReaders--;
+        readerWakeups++;
+    }
+}
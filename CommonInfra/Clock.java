@@ -0,0 +1,202 @@
+package CommonInfra;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ *    Time source of the entities, which may run faster than the wall clock.
+ *    The entities sleep through it for a simulated duration, and the events may be
+ *    stamped both with the wall time and with the simulated time elapsed since the
+ *    clock was started.
+ *    A real clock sleeps for the duration asked. A scaled clock sleeps a given number of
+ *    times less, its simulated time running as many times faster than the wall time. A
+ *    zero delay clock only yields the processor, so that the protocol runs at full speed;
+ *    its simulated time is the wall time, since the durations skipped by entities that
+ *    were sleeping at the same time overlap and cannot be added up.
+ *    The real and the scaled clocks may sleep on a shared {@link TimingWheel} instead
+ *    of on a timer of each thread.
+ *    A clock is also the {@link TimeSource} the events of its dinner are stamped with.
+ *    The clocks are thread safe.
+ */
+
+public abstract class Clock implements TimeSource
+{
+    /**
+     *   Value of <code>System.nanoTime()</code> when the clock was started.
+     */
+
+    private volatile long start;
+
+    /**
+     *   Clock instantiation, started at once.
+     */
+
+    protected Clock ()
+    {
+        start = System.nanoTime ();
+    }
+
+    /**
+     *   Clock running in real time.
+     *
+     *    @return clock
+     */
+
+    public static Clock real ()
+    {
+        return new Scaled (1, null);
+    }
+
+    /**
+     *   Clock running in real time, sleeping on a timing wheel.
+     *
+     *    @param wheel timing wheel, or <code>null</code> to sleep on a timer of each thread
+     *    @return clock
+     */
+
+    public static Clock real (TimingWheel wheel)
+    {
+        return new Scaled (1, wheel);
+    }
+
+    /**
+     *   Clock running faster than real time.
+     *
+     *    @param speedUp ratio of the simulated time to the wall time (at least one)
+     *    @return clock
+     */
+
+    public static Clock scaled (int speedUp)
+    {
+        return scaled (speedUp, null);
+    }
+
+    /**
+     *   Clock running faster than real time, sleeping on a timing wheel.
+     *
+     *    @param speedUp ratio of the simulated time to the wall time (at least one)
+     *    @param wheel timing wheel, or <code>null</code> to sleep on a timer of each thread
+     *    @return clock
+     */
+
+    public static Clock scaled (int speedUp, TimingWheel wheel)
+    {
+        if (speedUp < 1) throw new IllegalArgumentException ("speed up below one");
+        return new Scaled (speedUp, wheel);
+    }
+
+    /**
+     *   Clock whose sleeps take no time.
+     *
+     *    @return clock
+     */
+
+    public static Clock zeroDelay ()
+    {
+        return new ZeroDelay ();
+    }
+
+    /**
+     *   Starts the clock again, from time zero.
+     */
+
+    public void restart ()
+    {
+        start = System.nanoTime ();
+    }
+
+    /**
+     *   Wall time elapsed since the clock was started.
+     *
+     *    @return elapsed time, in nanoseconds
+     */
+
+    @Override
+    public long wallNanos ()
+    {
+        return System.nanoTime () - start;
+    }
+
+    /**
+     *   Simulated time elapsed since the clock was started.
+     *
+     *    @return elapsed time, in nanoseconds
+     */
+
+    @Override
+    public abstract long simNanos ();
+
+    /**
+     *   Lets a simulated duration go by.
+     *
+     *    @param millis duration, in simulated milliseconds
+     *    @throws InterruptedException if the calling thread is interrupted
+     */
+
+    public abstract void sleep (long millis) throws InterruptedException;
+
+    /**
+     *   Clock running a fixed number of times faster than real time.
+     */
+
+    private static final class Scaled extends Clock
+    {
+        private final int speedUp;
+        private final TimingWheel wheel;
+
+        Scaled (int speedUp, TimingWheel wheel)
+        {
+            this.speedUp = speedUp;
+            this.wheel = wheel;
+        }
+
+        @Override
+        public long simNanos ()
+        {
+            return wallNanos () * speedUp;
+        }
+
+        @Override
+        public void sleep (long millis) throws InterruptedException
+        {
+            if (wheel != null)
+            {
+                wheel.sleepNanos (millis * 1000000L / speedUp);
+                return;
+            }
+            if (speedUp == 1)
+            {
+                Thread.sleep (millis);
+                return;
+            }
+
+            //Sub-millisecond sleeps: Thread.sleep would round them up to a millisecond.
+            long deadline = System.nanoTime () + millis * 1000000L / speedUp;
+            for (long left = deadline - System.nanoTime (); left > 0;
+                    left = deadline - System.nanoTime ())
+            {
+                LockSupport.parkNanos (left);
+                if (Thread.interrupted ()) throw new InterruptedException ();
+            }
+        }
+    }
+
+    /**
+     *   Clock whose sleeps take no time.
+     */
+
+    private static final class ZeroDelay extends Clock
+    {
+        @Override
+        public long simNanos ()
+        {
+            return wallNanos ();
+        }
+
+        @Override
+        public void sleep (long millis) throws InterruptedException
+        {
+            if (Thread.interrupted ()) throw new InterruptedException ();
+            Thread.yield ();
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package CommonInfra;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ *    Append-only binary journal of state change events, written through a memory
+ *    mapped file.
+ *    Each record has a fixed size of {@link #RECORD_SIZE} bytes: sequence number,
+ *    wall and simulated time stamps (in nanoseconds, as given by the caller), entity
+ *    id, new state ordinal and current course. The file starts with a header holding the number of entities
+ *    the journal was written for.
+ *    The file is mapped in chunks, a new one being mapped when the current one is
+ *    full, and it is truncated to the written size when the journal is closed.
+ *    It is not thread safe, the caller must guarantee mutual exclusion.
+ */
+
+public class EventJournal
+{
+    /**
+     *   Journal identification and version.
+     */
+
+    private static final int MAGIC = 0x524a4e4c,                    // "RJNL"
+                              VERSION = 2;
+
+    /**
+     *   Header and record sizes, in bytes.
+     */
+
+    public static final int HEADER_SIZE = 16,
+                             RECORD_SIZE = 32;
+
+    /**
+     *   Size of each mapped chunk (a multiple of the record size).
+     */
+
+    private static final int CHUNK_SIZE = RECORD_SIZE * 32768;
+
+    /**
+     *   File channel, <code>null</code> while the journal is closed.
+     */
+
+    private FileChannel channel;
+
+    /**
+     *   Chunk currently mapped and its position in the file.
+     */
+
+    private MappedByteBuffer chunk;
+    private long chunkStart;
+
+    /**
+     *   Sequence number of the next record.
+     */
+
+    private long seq;
+
+    /**
+     *   Opens a new journal, truncating the file if it exists.
+     *
+     *    @param fileName name of the file
+     *    @param nEntities number of entities, stored in the header
+     *    @return <code>false</code> if the file could not be created
+     */
+
+    public boolean open (String fileName, int nEntities)
+    {
+        close ();
+        try
+        {
+            channel = FileChannel.open (Paths.get (fileName), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            seq = 0;
+            map (0);
+        }
+        catch (IOException e)
+        {
+            channel = null;
+            return false;
+        }
+        chunk.putInt (MAGIC).putInt (VERSION).putInt (nEntities).putInt (0);
+        return true;
+    }
+
+    /**
+     *   Appends a record.
+     *
+     *    @param wallNanos wall time of the event
+     *    @param simNanos simulated time of the event
+     *    @param entity entity id
+     *    @param state ordinal of the new state
+     *    @param course current course
+     */
+
+    public void append (long wallNanos, long simNanos, int entity, int state, int course)
+    {
+        if (chunk.remaining () < RECORD_SIZE)
+            try
+            {
+                map (chunkStart + chunk.position ());
+            }
+            catch (IOException e)
+            {
+                System.err.println ("Unable to extend the journal!");
+                System.exit (1);
+            }
+        chunk.putLong (seq++).putLong (wallNanos).putLong (simNanos).putInt (entity)
+             .put ((byte) state).put ((byte) 0).putShort ((short) course);
+    }
+
+    /**
+     *   Closes the journal, truncating the file to the written size. Closing a closed
+     *   journal has no effect.
+     */
+
+    public void close ()
+    {
+        if (channel == null) return;
+        try
+        {
+            long size = chunkStart + chunk.position ();
+            chunk.force ();
+            chunk = null;
+            channel.truncate (size);
+            channel.close ();
+        }
+        catch (IOException e)
+        {
+            System.err.println ("Unable to close the journal!");
+        }
+        channel = null;
+    }
+
+    /**
+     *   Number of records appended.
+     *
+     *    @return number of records
+     */
+
+    public long size ()
+    {
+        return seq;
+    }
+
+    private void map (long position) throws IOException
+    {
+        if (chunk != null) chunk.force ();
+        chunkStart = position;
+        chunk = channel.map (FileChannel.MapMode.READ_WRITE, position, CHUNK_SIZE);
+        chunk.order (ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     *    Sequential reader of a journal.
+     *    The file is mapped in chunks, as it was written, so that a journal of any size
+     *    can be read. The file stays open until the last record has been read or the
+     *    reader is closed.
+     */
+
+    public static class Reader implements AutoCloseable
+    {
+        /**
+         *   File channel, <code>null</code> once the reader is closed.
+         */
+
+        private FileChannel channel;
+
+        /**
+         *   File size.
+         */
+
+        private final long size;
+
+        /**
+         *   Chunk currently mapped and its position in the file.
+         */
+
+        private MappedByteBuffer buf;
+        private long bufStart;
+
+        /**
+         *   Number of entities stored in the header.
+         */
+
+        private final int nEntities;
+
+        /**
+         *   Fields of the current record.
+         */
+
+        private long seq, wallNanos, simNanos;
+        private int entity, state, course;
+
+        /**
+         *   Opens a journal for reading.
+         *
+         *    @param fileName name of the file
+         *    @throws IOException if the file cannot be read or is not a journal
+         */
+
+        public Reader (String fileName) throws IOException
+        {
+            channel = FileChannel.open (Paths.get (fileName), StandardOpenOption.READ);
+            try
+            {
+                size = channel.size ();
+                map (0);
+                if (buf.remaining () < HEADER_SIZE || buf.getInt () != MAGIC
+                        || buf.getInt () != VERSION)
+                    throw new IOException (fileName + " is not an event journal");
+            }
+            catch (IOException e)
+            {
+                close ();
+                throw e;
+            }
+            nEntities = buf.getInt ();
+            buf.getInt ();
+        }
+
+        /**
+         *   Closes the file. Closing a closed reader has no effect.
+         *
+         *    @throws IOException if the file cannot be closed
+         */
+
+        @Override
+        public void close () throws IOException
+        {
+            if (channel == null) return;
+            buf = null;
+            channel.close ();
+            channel = null;
+        }
+
+        /**
+         *   Number of entities the journal was written for.
+         *
+         *    @return number of entities
+         */
+
+        public int entities ()
+        {
+            return nEntities;
+        }
+
+        /**
+         *   Moves to the next record.
+         *
+         *    @return <code>false</code> if there are no more records
+         *    @throws IOException if the next chunk cannot be mapped
+         */
+
+        public boolean next () throws IOException
+        {
+            if (channel == null) return false;
+            if (buf.remaining () < RECORD_SIZE)
+            {
+                //Next chunk, from the first byte not read.
+                long position = bufStart + buf.position ();
+                if (size - position < RECORD_SIZE)
+                {
+                    close ();
+                    return false;
+                }
+                map (position);
+            }
+            seq = buf.getLong ();
+            wallNanos = buf.getLong ();
+            simNanos = buf.getLong ();
+            entity = buf.getInt ();
+            state = buf.get ();
+            buf.get ();
+            course = buf.getShort ();
+            return true;
+        }
+
+        private void map (long position) throws IOException
+        {
+            bufStart = position;
+            buf = channel.map (FileChannel.MapMode.READ_ONLY, position,
+                    Math.min (CHUNK_SIZE, size - position));
+            buf.order (ByteOrder.LITTLE_ENDIAN);
+        }
+
+        /**
+         *   Sequence number of the current record.
+         *
+         *    @return sequence number
+         */
+
+        public long seq () { return seq; }
+
+        /**
+         *   Wall time stamp of the current record.
+         *
+         *    @return wall time of the event, in nanoseconds
+         */
+
+        public long wallNanos () { return wallNanos; }
+
+        /**
+         *   Simulated time stamp of the current record.
+         *
+         *    @return simulated time of the event, in nanoseconds
+         */
+
+        public long simNanos () { return simNanos; }
+
+        /**
+         *   Entity of the current record.
+         *
+         *    @return entity id
+         */
+
+        public int entity () { return entity; }
+
+        /**
+         *   New state of the current record.
+         *
+         *    @return state ordinal
+         */
+
+        public int state () { return state; }
+
+        /**
+         *   Course of the current record.
+         *
+         *    @return course number
+         */
+
+        public int course () { return course; }
+    }
+}
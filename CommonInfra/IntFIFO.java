@@ -0,0 +1,50 @@
+package CommonInfra;
+
+/**
+ *    FIFO of primitive integers.
+ *    Non-instantiatable data type. It must be derived.
+ *    It follows the same write / read contract as {@link MemObject}, without boxing
+ *    the stored values: writing into a full FIFO and reading from an empty one block
+ *    the calling thread.
+ */
+
+public abstract class IntFIFO
+{
+  /**
+   *   FIFO insertion.
+   *   Virtual method, it has to be overridden in a derived data type.
+   *
+   *    @param val value to be written
+   */
+
+   public abstract void write (int val);
+
+  /**
+   *   FIFO retrieval.
+   *   Virtual method, it has to be overridden in a derived data type.
+   *
+   *    @return first value that was written
+   */
+
+   public abstract int read ();
+
+  /**
+   *   Bulk FIFO retrieval, without blocking.
+   *   Virtual method, it has to be overridden in a derived data type.
+   *
+   *    @param dst array where the values are stored, from index zero
+   *    @param max maximum number of values to read
+   *    @return number of values read (zero if the FIFO is empty)
+   */
+
+   public abstract int drainTo (int [] dst, int max);
+
+  /**
+   *   FIFO state.
+   *   Virtual method, it has to be overridden in a derived data type.
+   *
+   *    @return <code>true</code> if there is nothing to be read
+   */
+
+   public abstract boolean isEmpty ();
+}
@@ -0,0 +1,319 @@
+package CommonInfra;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ *    Text log file kept open for its whole life.
+ *    The text is assembled in a buffer and handed to the file channel according to a
+ *    flush policy, so writing a line costs neither opening nor closing the file.
+ *    Only ASCII text is expected: each character is written as a single byte.
+ *    Text that is written often can be encoded once and given as bytes, and numbers
+ *    are written digit by digit, so writing a line need not allocate anything.
+ *    The flush policy is applied when a line ends: with <code>EVERY_T_MS</code>, the
+ *    last lines of a burst stay buffered until the next line, unless the owner calls
+ *    {@link #flushIfDue()} on a timer.
+ *    It is not thread safe, the caller must guarantee mutual exclusion.
+ */
+
+public class LogWriter
+{
+    /**
+     *   When the buffered lines are written to the file.
+     */
+
+    public enum FlushPolicy
+    {
+        /**
+         *   After every line.
+         */
+        EVERY_LINE,
+        /**
+         *   After every N lines.
+         */
+        EVERY_N_LINES,
+        /**
+         *   When at least T milliseconds have elapsed since the last flush, checked at
+         *   the end of each line and by {@link LogWriter#flushIfDue()}.
+         */
+        EVERY_T_MS,
+        /**
+         *   Only when the buffer is full and when the log is closed.
+         */
+        ON_SHUTDOWN
+    }
+
+    /**
+     *   Default buffer size.
+     */
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     *   File channel, <code>null</code> while the log is closed.
+     */
+
+    private FileChannel channel;
+
+    /**
+     *   Buffer where the text is assembled.
+     */
+
+    private final ByteBuffer buf;
+
+    /**
+     *   Flush policy and its parameters.
+     */
+
+    private final FlushPolicy policy;
+    private final int flushLines;
+    private final long flushNanos;
+
+    /**
+     *   Lines written since the last flush and time of the last flush.
+     */
+
+    private int pendingLines;
+    private long lastFlush;
+
+    /**
+     *   Log instantiation.
+     *
+     *     @param policy flush policy
+     *     @param flushLines number of lines between flushes, for <code>EVERY_N_LINES</code>
+     *     @param flushMillis time between flushes, for <code>EVERY_T_MS</code>
+     */
+
+    public LogWriter (FlushPolicy policy, int flushLines, long flushMillis)
+    {
+        this.policy = policy;
+        this.flushLines = Math.max (flushLines, 1);
+        this.flushNanos = flushMillis * 1000000L;
+        buf = ByteBuffer.allocateDirect (BUFFER_SIZE);
+    }
+
+    /**
+     *   Opens the log file, closing the previous one if needed.
+     *
+     *    @param fileName name of the file
+     *    @param append <code>true</code> to append to an existing file, <code>false</code>
+     *    to truncate it
+     *    @return <code>false</code> if the file could not be opened
+     */
+
+    public boolean open (String fileName, boolean append)
+    {
+        close ();
+        try
+        {
+            channel = FileChannel.open (Paths.get (fileName), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE,
+                    append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+        }
+        catch (IOException e)
+        {
+            channel = null;
+            return false;
+        }
+        pendingLines = 0;
+        lastFlush = System.nanoTime ();
+        return true;
+    }
+
+    /**
+     *   Writes a string.
+     *
+     *    @param s string to be written
+     */
+
+    public void writeString (String s)
+    {
+        for (int i = 0; i < s.length (); i++)
+            put ((byte) s.charAt (i));
+    }
+
+    /**
+     *   Writes a string left justified in a field of a given width.
+     *   Strings longer than the field are written in full.
+     *
+     *    @param width field width
+     *    @param s string to be written
+     */
+
+    public void writeFormString (int width, String s)
+    {
+        writeString (s);
+        for (int i = s.length (); i < width; i++)
+            put ((byte) ' ');
+    }
+
+    /**
+     *   Writes raw bytes, such as pre-rendered text.
+     *
+     *    @param b bytes to be written
+     */
+
+    public void writeBytes (byte [] b)
+    {
+        if (b.length > buf.remaining ()) drain ();
+        if (b.length <= buf.remaining ()) buf.put (b);
+        else
+            for (byte x : b) put (x);
+    }
+
+    /**
+     *   Writes a non-negative integer in decimal, without allocating a string.
+     *
+     *    @param val value to be written
+     */
+
+    public void writeInt (int val)
+    {
+        writeLong (val);
+    }
+
+    /**
+     *   Writes a non-negative long integer in decimal, without allocating a string.
+     *
+     *    @param val value to be written
+     */
+
+    public void writeLong (long val)
+    {
+        if (val < 0)
+        {
+            writeString (Long.toString (val));
+            return;
+        }
+        long div = 1;
+        while (val / div >= 10) div *= 10;
+        for (; div > 0; div /= 10)
+            put ((byte) ('0' + (val / div) % 10));
+    }
+
+    /**
+     *   Writes a non-negative long integer left justified in a field of a given width.
+     *   Numbers longer than the field are written in full.
+     *
+     *    @param width field width
+     *    @param val value to be written
+     */
+
+    public void writeFormLong (int width, long val)
+    {
+        int digits = 1;
+        for (long v = val; v >= 10; v /= 10) digits++;
+        writeLong (val);
+        for (int i = digits; i < width; i++)
+            put ((byte) ' ');
+    }
+
+    /**
+     *   Ends the current line and applies the flush policy.
+     */
+
+    public void endLine ()
+    {
+        put ((byte) '\n');
+        pendingLines++;
+        switch (policy)
+        {
+            case EVERY_LINE:
+                flush ();
+                break;
+            case EVERY_N_LINES:
+                if (pendingLines >= flushLines) flush ();
+                break;
+            case EVERY_T_MS:
+                if (System.nanoTime () - lastFlush >= flushNanos) flush ();
+                break;
+            case ON_SHUTDOWN:
+                break;
+        }
+    }
+
+    /**
+     *   Applies the time based policy without ending a line: with
+     *   <code>EVERY_T_MS</code>, writes the buffered lines to the file if at least T
+     *   milliseconds have elapsed since the last flush. To be called on a timer, at the
+     *   times given by {@link #nanosToNextFlush()}, so that no line stays buffered longer
+     *   than that once the writes stop.
+     */
+
+    public void flushIfDue ()
+    {
+        if (policy == FlushPolicy.EVERY_T_MS && pendingLines > 0
+                && System.nanoTime () - lastFlush >= flushNanos)
+            flush ();
+    }
+
+    /**
+     *   Time until the buffered lines are due, with <code>EVERY_T_MS</code>: a line is
+     *   only left buffered if less than T milliseconds have elapsed since the last
+     *   flush, so it is due when they have. If no line is buffered, the next one may
+     *   be due T milliseconds after it is written at the latest.
+     *
+     *    @return time until the next call to {@link #flushIfDue()}, in nanoseconds
+     */
+
+    public long nanosToNextFlush ()
+    {
+        if (pendingLines == 0) return flushNanos;
+        return Math.max (0, lastFlush + flushNanos - System.nanoTime ());
+    }
+
+    /**
+     *   Writes the buffered text to the file.
+     */
+
+    public void flush ()
+    {
+        drain ();
+        pendingLines = 0;
+        lastFlush = System.nanoTime ();
+    }
+
+    /**
+     *   Flushes and closes the log file. Closing a closed log has no effect.
+     */
+
+    public void close ()
+    {
+        if (channel == null) return;
+        flush ();
+        try
+        {
+            channel.close ();
+        }
+        catch (IOException e)
+        {
+            System.err.println ("Unable to close the log file!");
+        }
+        channel = null;
+    }
+
+    private void put (byte b)
+    {
+        if (!buf.hasRemaining ()) drain ();
+        buf.put (b);
+    }
+
+    private void drain ()
+    {
+        buf.flip ();
+        try
+        {
+            while (buf.hasRemaining () && channel != null)
+                channel.write (buf);
+        }
+        catch (IOException e)
+        {
+            System.err.println ("Unable to write to the log file!");
+            System.exit (1);
+        }
+        buf.clear ();
+    }
+}
@@ -2,9 +2,11 @@ package CommonInfra;
 
 /**
  *    Generic FIFO derived from a generic memory.
+ *
+ *    @param <T> type of the stored objects
  */
 
-public class MemFIFO extends MemObject
+public class MemFIFO<T> extends MemObject<T>
 {
     /**
      *   Pointer to the first empty location.
@@ -48,7 +50,7 @@ public class MemFIFO extends MemObject
      */
     
     @Override
-    public synchronized void  write (Object val)
+    public synchronized void  write (T val)
     {
         //if the FIFO is full it gets blocked here
         while ((inPnt == outPnt) && !empty)
@@ -74,9 +76,9 @@ public class MemFIFO extends MemObject
      */
     
     @Override
-    public synchronized Object read ()
+    public synchronized T read ()
     {
-        Object val = null;                                    // default returned object
+        T val = null;                                         // default returned object
         
         //if the FIFO is empty it gets blocked here
         while(empty)
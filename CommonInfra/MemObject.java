@@ -3,15 +3,17 @@ package CommonInfra;
 /**
  *    Generic memory.
  *    Non-instantiatable data type. It must be derived.
+ *
+ *    @param <T> type of the stored objects
  */
 
-public abstract class MemObject
+public abstract class MemObject<T>
 {
   /**
    *   Internal storage area.
    */
 
-   protected Object [] mem;
+   protected T [] mem;
 
   /**
    *   Memory instantiation.
@@ -21,9 +23,10 @@ public abstract class MemObject
    *     @param nElem memory size
    */
 
+   @SuppressWarnings("unchecked")
    protected MemObject (int nElem)
    {
-     if (nElem > 0) mem = new Object [nElem];
+     if (nElem > 0) mem = (T []) new Object [nElem];
    }
 
   /**
@@ -34,7 +37,7 @@ public abstract class MemObject
    *    @param val generic object to be written
    */
 
-   protected abstract void write (Object val);
+   protected abstract void write (T val);
 
   /**
    *   Memory read.
@@ -44,5 +47,5 @@ public abstract class MemObject
    *    @return last generic object that was written
    */
 
-   protected abstract Object read ();
+   protected abstract T read ();
 }
\ No newline at end of file
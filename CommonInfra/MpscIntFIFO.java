@@ -0,0 +1,318 @@
+package CommonInfra;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ *    Lock-free FIFO of primitive integers for many writers and a single reader.
+ *    Bounded ring buffer where each slot carries a sequence number telling whether it
+ *    is free for the writer of a given round or holds a value for the reader.
+ *    Writers claim a slot by a compare and set on the tail sequence; the reader owns
+ *    the head sequence. Both are padded so they do not share a cache line.
+ *    Only one thread may read at a time (reads may come from different threads if
+ *    they are serialized by some other means, such as a <code>mutex</code>).
+ *    An empty FIFO parks the reader until a writer unparks it; a full one makes the
+ *    writers back off until a slot is freed.
+ *    A stamped FIFO carries a pair of long stamps (e.g. the time a value was written)
+ *    with each value, published together with it.
+ */
+
+public class MpscIntFIFO extends IntFIFO
+{
+    /**
+     *   Internal storage area.
+     */
+
+    private final int [] mem;
+
+    /**
+     *   Stamps of each slot, two per slot, or <code>null</code> if the FIFO is not
+     *   stamped.
+     */
+
+    private final long [] stamp;
+
+    /**
+     *   Sequence number of each slot.
+     */
+
+    private final long [] seq;
+
+    /**
+     *   Index mask (the size is a power of two).
+     */
+
+    private final int mask;
+
+    /**
+     *   Next position to be claimed by a writer.
+     */
+
+    private final PaddedSequence tail = new PaddedSequence (0);
+
+    /**
+     *   Next position to be read.
+     */
+
+    private final PaddedSequence head = new PaddedSequence (0);
+
+    /**
+     *   Reader parked waiting for a value, if any.
+     */
+
+    private volatile Thread parkedReader;
+
+    /**
+     *   Handle used to access the slot sequence numbers.
+     */
+
+    private static final VarHandle SEQ = MethodHandles.arrayElementVarHandle (long [].class);
+
+    /**
+     *   Number of spins of a blocked reader before it parks.
+     */
+
+    private static final int READER_SPINS = 64;
+
+    /**
+     *   FIFO instantiation.
+     *   The size is rounded up to the next power of two, and to at least two: with a
+     *   single slot, the sequence a writer publishes would be the one that frees the
+     *   slot for the next writer. No error is reported.
+     *
+     *     @param nElem FIFO size
+     */
+
+    public MpscIntFIFO (int nElem)
+    {
+        this (nElem, false);
+    }
+
+    /**
+     *   FIFO instantiation, possibly stamped.
+     *   The size is rounded as in {@link #MpscIntFIFO(int)}.
+     *
+     *     @param nElem FIFO size
+     *     @param stamped <code>true</code> if each value carries a pair of stamps
+     */
+
+    public MpscIntFIFO (int nElem, boolean stamped)
+    {
+        int size = 2;
+        while (size < nElem) size <<= 1;
+        mem = new int [size];
+        stamp = stamped ? new long [2 * size] : null;
+        seq = new long [size];
+        mask = size - 1;
+        for (int i = 0; i < size; i++)
+            seq[i] = i;
+    }
+
+    /**
+     *   FIFO insertion, without blocking.
+     *
+     *    @param val value to be written
+     *    @return <code>false</code> if the FIFO is full
+     */
+
+    public boolean offer (int val)
+    {
+        return offer (val, 0, 0);
+    }
+
+    /**
+     *   Stamped FIFO insertion, without blocking.
+     *   The stamps are ignored if the FIFO is not stamped.
+     *
+     *    @param val value to be written
+     *    @param stamp0 first stamp of the value
+     *    @param stamp1 second stamp of the value
+     *    @return <code>false</code> if the FIFO is full
+     */
+
+    public boolean offer (int val, long stamp0, long stamp1)
+    {
+        long pos = tail.get ();
+        for (;;)
+        {
+            int idx = (int) pos & mask;
+            long dif = (long) SEQ.getVolatile (seq, idx) - pos;
+            if (dif == 0)
+            {
+                if (tail.compareAndSet (pos, pos + 1))
+                {
+                    mem[idx] = val;
+                    if (stamp != null)
+                    {
+                        stamp[2 * idx] = stamp0;
+                        stamp[2 * idx + 1] = stamp1;
+                    }
+                    SEQ.setVolatile (seq, idx, pos + 1);
+                    Thread reader = parkedReader;
+                    if (reader != null) LockSupport.unpark (reader);
+                    return true;
+                }
+                pos = tail.get ();
+            }
+            else if (dif < 0) return false;
+            else pos = tail.get ();
+        }
+    }
+
+    /**
+     *   FIFO insertion.
+     *   If the FIFO is full, the writer backs off until a slot is freed.
+     *
+     *    @param val value to be written
+     */
+
+    @Override
+    public void write (int val)
+    {
+        write (val, 0, 0);
+    }
+
+    /**
+     *   Stamped FIFO insertion.
+     *   If the FIFO is full, the writer backs off until a slot is freed. The stamps
+     *   are ignored if the FIFO is not stamped.
+     *
+     *    @param val value to be written
+     *    @param stamp0 first stamp of the value
+     *    @param stamp1 second stamp of the value
+     */
+
+    public void write (int val, long stamp0, long stamp1)
+    {
+        for (int tries = 0; !offer (val, stamp0, stamp1); tries++)
+            if (tries < READER_SPINS) Thread.onSpinWait ();
+            else LockSupport.parkNanos (this, 1000);
+    }
+
+    /**
+     *   Single attempt of retrieval.
+     *
+     *    @return index of the slot holding the next value, or <code>-1</code> if empty
+     */
+
+    private int readySlot ()
+    {
+        long pos = head.get ();
+        int idx = (int) pos & mask;
+        return ((long) SEQ.getVolatile (seq, idx) == pos + 1) ? idx : -1;
+    }
+
+    /**
+     *   Frees the slot that was just read.
+     *
+     *    @param idx slot index
+     *    @param dst array where the stamps of the value are stored, or <code>null</code>
+     *    @param at index of <code>dst</code> where they are stored
+     *    @return value held by the slot
+     */
+
+    private int consume (int idx, long [] dst, int at)
+    {
+        long pos = head.get ();
+        int val = mem[idx];
+        if (dst != null)
+        {
+            dst[at] = stamp[2 * idx];
+            dst[at + 1] = stamp[2 * idx + 1];
+        }
+        SEQ.setVolatile (seq, idx, pos + mask + 1);
+        head.set (pos + 1);
+        return val;
+    }
+
+    /**
+     *   FIFO retrieval.
+     *   If the FIFO is empty, the reader spins for a while and then parks until a
+     *   writer hands it a value.
+     *
+     *    @return first value that was written
+     */
+
+    @Override
+    public int read ()
+    {
+        return read (null);
+    }
+
+    /**
+     *   Stamped FIFO retrieval.
+     *   If the FIFO is empty, the reader blocks as in {@link #read()}.
+     *
+     *    @param stamps array where the two stamps of the value are stored, from index
+     *                  zero, or <code>null</code> (it must be <code>null</code> if the
+     *                  FIFO is not stamped)
+     *    @return first value that was written
+     */
+
+    public int read (long [] stamps)
+    {
+        int idx;
+        for (int spins = 0; (idx = readySlot ()) < 0 && spins < READER_SPINS; spins++)
+            Thread.onSpinWait ();
+        if (idx < 0)
+        {
+            parkedReader = Thread.currentThread ();
+            while ((idx = readySlot ()) < 0)
+                LockSupport.park (this);
+            parkedReader = null;
+        }
+        return consume (idx, stamps, 0);
+    }
+
+    /**
+     *   Bulk FIFO retrieval, without blocking.
+     *
+     *    @param dst array where the values are stored, from index zero
+     *    @param max maximum number of values to read
+     *    @return number of values read
+     */
+
+    @Override
+    public int drainTo (int [] dst, int max)
+    {
+        return drainTo (dst, null, max);
+    }
+
+    /**
+     *   Stamped bulk FIFO retrieval, without blocking.
+     *
+     *    @param dst array where the values are stored, from index zero
+     *    @param stamps array where the stamps of value <code>i</code> are stored, at
+     *                  indexes <code>2i</code> and <code>2i + 1</code>, or
+     *                  <code>null</code> (it must be <code>null</code> if the FIFO is
+     *                  not stamped)
+     *    @param max maximum number of values to read
+     *    @return number of values read
+     */
+
+    public int drainTo (int [] dst, long [] stamps, int max)
+    {
+        int n = 0, idx;
+        int limit = Math.min (max, dst.length);
+        if (stamps != null) limit = Math.min (limit, stamps.length / 2);
+        while (n < limit && (idx = readySlot ()) >= 0)
+        {
+            dst[n] = consume (idx, stamps, 2 * n);
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     *   FIFO state.
+     *
+     *    @return <code>true</code> if there is nothing to be read
+     */
+
+    @Override
+    public boolean isEmpty ()
+    {
+        return readySlot () < 0;
+    }
+}
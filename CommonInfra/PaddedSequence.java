@@ -0,0 +1,103 @@
+package CommonInfra;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ *    Sequence counter padded on both sides, so that it sits alone in its cache line
+ *    and the producers and the consumer of a ring buffer do not invalidate each
+ *    other's counters (false sharing).
+ *    The padding is spread through a class hierarchy because the JVM does not
+ *    reorder fields across classes.
+ */
+
+final class PaddedSequence extends PaddedSequenceValue
+{
+    /**
+     *   Right hand side padding.
+     */
+
+    long p9, p10, p11, p12, p13, p14, p15;
+
+    /**
+     *   Handle used for the atomic operations on the value.
+     */
+
+    private static final VarHandle VALUE;
+
+    static
+    {
+        try
+        {
+            VALUE = MethodHandles.lookup ().findVarHandle (PaddedSequenceValue.class, "value", long.class);
+        }
+        catch (ReflectiveOperationException e)
+        {
+            throw new ExceptionInInitializerError (e);
+        }
+    }
+
+    /**
+     *   Sequence instantiation.
+     *
+     *     @param initial initial value
+     */
+
+    PaddedSequence (long initial)
+    {
+        value = initial;
+    }
+
+    /**
+     *   Volatile read.
+     *
+     *    @return current value
+     */
+
+    long get ()
+    {
+        return value;
+    }
+
+    /**
+     *   Volatile write.
+     *
+     *    @param v new value
+     */
+
+    void set (long v)
+    {
+        value = v;
+    }
+
+    /**
+     *   Atomic compare and set.
+     *
+     *    @param expected expected value
+     *    @param v new value
+     *    @return <code>true</code> if the value was updated
+     */
+
+    boolean compareAndSet (long expected, long v)
+    {
+        return VALUE.compareAndSet (this, expected, v);
+    }
+}
+
+/**
+ *    Left hand side padding.
+ */
+
+abstract class PaddedSequenceLhs
+{
+    long p1, p2, p3, p4, p5, p6, p7;
+}
+
+/**
+ *    The sequence value itself.
+ */
+
+abstract class PaddedSequenceValue extends PaddedSequenceLhs
+{
+    volatile long value;
+}
@@ -0,0 +1,188 @@
+package CommonInfra;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.AbstractQueuedSynchronizer;
+
+/**
+ *    Reusable generation barrier, in the fashion of <code>java.util.concurrent.Phaser</code>.
+ *    A fixed number of parties arrive at each phase; the arrival of the last one
+ *    advances the phase, releasing every thread waiting for it. Any thread, party or
+ *    not, may wait for a phase to be over.
+ *    The arrivals are counted in a combining tree: the parties are split in groups of
+ *    at most <code>fanIn</code>, each with its own counter, and only the last one to
+ *    arrive at a group goes on to the group above, so that no counter is disputed by
+ *    more than <code>fanIn</code> threads. The phase is the state of an
+ *    <code>AbstractQueuedSynchronizer</code>; its advance is a single release, the
+ *    waiting threads waking each other along the wait queue.
+ *    Each party may arrive only once per phase.
+ */
+
+public class PhaseBarrier
+{
+    /**
+     *   Synchronizer holding the current phase.
+     */
+
+    private final Sync sync;
+
+    /**
+     *   Node of the combining tree where each group of parties arrives.
+     */
+
+    private final Node [] leaf;
+
+    /**
+     *   Maximum number of arrivals counted by a node.
+     */
+
+    private final int fanIn;
+
+    /**
+     *   Barrier instantiation, with a single counter for all the parties.
+     *
+     *     @param parties number of parties
+     */
+
+    public PhaseBarrier (int parties)
+    {
+        this (parties, parties);
+    }
+
+    /**
+     *   Barrier instantiation, in phase zero.
+     *
+     *     @param parties number of parties
+     *     @param fanIn maximum number of arrivals counted by a node of the tree (at least two)
+     */
+
+    public PhaseBarrier (int parties, int fanIn)
+    {
+        if (parties < 1) throw new IllegalArgumentException ("no parties");
+        this.fanIn = Math.max (fanIn, 2);
+        sync = new Sync ();
+
+        //Leaves, one per group of parties.
+        leaf = new Node [(parties + this.fanIn - 1) / this.fanIn];
+        for (int i = 0; i < leaf.length; i++)
+            leaf[i] = new Node (Math.min (this.fanIn, parties - i * this.fanIn));
+
+        //Upper levels, until a single root.
+        Node [] level = leaf;
+        while (level.length > 1)
+        {
+            Node [] upper = new Node [(level.length + this.fanIn - 1) / this.fanIn];
+            for (int i = 0; i < upper.length; i++)
+                upper[i] = new Node (Math.min (this.fanIn, level.length - i * this.fanIn));
+            for (int i = 0; i < level.length; i++)
+                level[i].parent = upper[i / this.fanIn];
+            level = upper;
+        }
+    }
+
+    /**
+     *  Arrival of a party at the current phase, without waiting for the others.
+     *  The last party to arrive advances the phase.
+     *
+     *    @param party party number, from zero
+     *    @return <code>true</code> if this arrival advanced the phase
+     */
+
+    public boolean arrive (int party)
+    {
+        Node n = leaf[party / fanIn];
+        while (n != null)
+        {
+            if (n.count.incrementAndGet () < n.expected) return false;
+
+            //Last arrival at the node: it is reset for the next phase before going up.
+            n.count.set (0);
+            n = n.parent;
+        }
+        sync.releaseShared (1);
+        return true;
+    }
+
+    /**
+     *  Waits for a phase to be over. Returns at once if it is already over.
+     *
+     *    @param phase phase number
+     */
+
+    public void awaitAdvance (int phase)
+    {
+        sync.acquireShared (phase);
+    }
+
+    /**
+     *  Arrival of a party at the current phase, waiting for the others.
+     *
+     *    @param party party number, from zero
+     *    @return <code>true</code> if this arrival advanced the phase
+     */
+
+    public boolean arriveAndAwaitAdvance (int party)
+    {
+        int phase = sync.phase ();
+        if (arrive (party)) return true;
+        awaitAdvance (phase);
+        return false;
+    }
+
+    /**
+     *  Current phase.
+     *
+     *    @return number of phases that are over
+     */
+
+    public int phase ()
+    {
+        return sync.phase ();
+    }
+
+    /**
+     *   Node of the combining tree.
+     */
+
+    private static final class Node
+    {
+        final AtomicInteger count = new AtomicInteger ();
+        final int expected;
+        Node parent;
+
+        Node (int expected)
+        {
+            this.expected = expected;
+        }
+    }
+
+    /**
+     *   Synchronizer whose state is the phase: a phase is acquired once it is over.
+     */
+
+    private static final class Sync extends AbstractQueuedSynchronizer
+    {
+        private static final long serialVersionUID = 1L;
+
+        final int phase ()
+        {
+            return getState ();
+        }
+
+        @Override
+        protected int tryAcquireShared (int phase)
+        {
+            return getState () > phase ? 1 : -1;
+        }
+
+        @Override
+        protected boolean tryReleaseShared (int ignored)
+        {
+            for (;;)
+            {
+                int current = getState ();
+                if (compareAndSetState (current, current + 1))
+                    return true;
+            }
+        }
+    }
+}
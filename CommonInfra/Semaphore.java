@@ -1,49 +1,305 @@
 package CommonInfra;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.AbstractQueuedSynchronizer;
+
  /**
   *    Definition of a Dijstra type semaphore.
+  *    The permits are kept in the state of an <code>AbstractQueuedSynchronizer</code>,
+  *    so blocked threads are parked in its wait queue instead of the object monitor.
+  *    In fair mode the permits are granted in arrival order; in non-fair mode an
+  *    incoming thread may take a permit ahead of the queued ones.
+  *    In adaptive mode a thread that finds no permit spins for a short while before
+  *    parking, which pays off for the short hand-offs between two entities on a
+  *    multi-core machine. The spin budget follows the observed hand-off latency.
   */
 
 public class Semaphore
 {
     /**
-     *   Internal data
+     *   Synchronizer holding the number of available permits.
+     */
+
+    private final Sync sync;
+
+    /**
+     *   <code>true</code> if the semaphore spins before parking.
+     */
+
+    private final boolean adaptive;
+
+    /**
+     *   Moving average of the time, in nanoseconds, a blocked down operation waited
+     *   for its permit (adaptive mode only).
+     */
+
+    private volatile long avgHandOffNanos = INITIAL_HAND_OFF_NANOS;
+
+    /**
+     *   Initial estimate of the hand-off latency.
+     */
+
+    private static final long INITIAL_HAND_OFF_NANOS = 10000;
+
+    /**
+     *   Bounds of the spin budget: hand-offs slower than the maximum are not worth
+     *   spinning for.
+     */
+
+    private static final long MIN_SPIN_NANOS = 1000,
+                              MAX_SPIN_NANOS = 50000;
+
+    /**
+     *   Spinning is useless when there is only one processor.
+     */
+
+    private static final boolean MULTI_CORE = Runtime.getRuntime ().availableProcessors () > 1;
+
+    /**
+     *   Semaphore instantiation, in non-fair mode and with no permits available.
+     */
+
+    public Semaphore ()
+    {
+        this (false);
+    }
+
+    /**
+     *   Semaphore instantiation, with no permits available.
+     *
+     *     @param fair <code>true</code> if the permits are to be granted in arrival order
+     */
+
+    public Semaphore (boolean fair)
+    {
+        this (fair, false);
+    }
+
+    /**
+     *   Semaphore instantiation, with no permits available.
+     *
+     *     @param fair <code>true</code> if the permits are to be granted in arrival order
+     *     @param adaptive <code>true</code> if a blocking down operation is to spin
+     *     briefly before parking
      */
-    
-    private int val = 0,                              // green / red indicator
-            numbBlockThreads = 0;                 // number of the blocked threads in the monitor
-    
-    /*
-    *  The down /up operations are made atomic by access locking to the associated object monitor.
-    */
-    
+
+    public Semaphore (boolean fair, boolean adaptive)
+    {
+        sync = fair ? new FairSync () : new NonfairSync ();
+        this.adaptive = adaptive && MULTI_CORE;
+    }
+
     /**
      *  Down operation.
+     *  The calling thread blocks until a permit is available. Interrupts are ignored
+     *  while blocked, but the interrupt status is restored on return.
      */
-    
-    public synchronized void down ()
+
+    public void down ()
+    {
+        if (adaptive) spinThenPark (1);
+        else sync.acquireShared (1);
+    }
+
+    /**
+     *  Bulk down operation.
+     *  The calling thread blocks until <code>n</code> permits are available and takes
+     *  them all at once.
+     *
+     *    @param n number of permits
+     */
+
+    public void down (int n)
+    {
+        if (n < 0) throw new IllegalArgumentException ("negative number of permits");
+        if (adaptive) spinThenPark (n);
+        else sync.acquireShared (n);
+    }
+
+    /**
+     *  Interruptible down operation.
+     *
+     *    @throws InterruptedException if the calling thread is interrupted while blocked
+     */
+
+    public void downInterruptibly () throws InterruptedException
+    {
+        sync.acquireSharedInterruptibly (1);
+    }
+
+    /**
+     *  Non-blocking down operation.
+     *
+     *    @return <code>true</code> if a permit was taken, <code>false</code> if none was available
+     */
+
+    public boolean tryDown ()
+    {
+        return sync.tryDown (1);
+    }
+
+    /**
+     *  Timed down operation.
+     *
+     *    @param timeout maximum time to wait
+     *    @param unit time unit of the timeout
+     *    @return <code>true</code> if a permit was taken, <code>false</code> if the time elapsed
+     *    @throws InterruptedException if the calling thread is interrupted while blocked
+     */
+
+    public boolean tryDown (long timeout, TimeUnit unit) throws InterruptedException
     {
-        if (val == 0)
-        { numbBlockThreads += 1;
-        try
-        { wait ();
+        return sync.tryAcquireSharedNanos (1, unit.toNanos (timeout));
+    }
+
+    /**
+     *  Up operation.
+     */
+
+    public void up ()
+    {
+        sync.releaseShared (1);
+    }
+
+    /**
+     *  Bulk up operation.
+     *  Releases <code>n</code> permits in a single operation.
+     *
+     *    @param n number of permits
+     */
+
+    public void up (int n)
+    {
+        if (n < 0) throw new IllegalArgumentException ("negative number of permits");
+        sync.releaseShared (n);
+    }
+
+    /**
+     *  Adaptive acquisition: spins with <code>Thread.onSpinWait()</code> for up to twice
+     *  the average hand-off latency and then parks in the synchronizer queue.
+     *  Every blocked acquisition feeds its waiting time back into the average.
+     *
+     *    @param n number of permits
+     */
+
+    private void spinThenPark (int n)
+    {
+        if (sync.tryDown (n)) return;
+
+        long start = System.nanoTime ();
+        long avg = avgHandOffNanos;
+        long budget = avg > MAX_SPIN_NANOS ? 0 : Math.max (MIN_SPIN_NANOS, 2 * avg);
+        boolean acquired = false;
+
+        if (budget > 0)
+        {
+            long deadline = start + budget;
+            do
+            {
+                Thread.onSpinWait ();
+                acquired = sync.tryDown (n);
+            } while (!acquired && System.nanoTime () - deadline < 0);
         }
-        catch (InterruptedException e) {}
+        if (!acquired) sync.acquireShared (n);
+
+        //Exponential moving average with weight 1/8, races between updates are harmless.
+        long waited = System.nanoTime () - start;
+        avgHandOffNanos = avg + ((waited - avg) >> 3);
+    }
+
+    /**
+     *  Current spin estimate (for monitoring purposes only).
+     *
+     *    @return average hand-off latency in nanoseconds, as seen by the adaptive mode
+     */
+
+    public long averageHandOffNanos ()
+    {
+        return avgHandOffNanos;
+    }
+
+    /**
+     *  Number of permits currently available (for monitoring purposes only).
+     *
+     *    @return number of permits
+     */
+
+    public int availablePermits ()
+    {
+        return sync.permits ();
+    }
+
+    /**
+     *   Synchronizer whose state is the number of available permits.
+     */
+
+    abstract static class Sync extends AbstractQueuedSynchronizer
+    {
+        private static final long serialVersionUID = 1L;
+
+        final int permits ()
+        {
+            return getState ();
+        }
+
+        final boolean tryDown (int n)
+        {
+            return tryAcquireShared (n) >= 0;
+        }
+
+        final int nonfairTryAcquireShared (int n)
+        {
+            for (;;)
+            {
+                int available = getState ();
+                int remaining = available - n;
+                if (remaining < 0 || compareAndSetState (available, remaining))
+                    return remaining;
+            }
+        }
+
+        @Override
+        protected final boolean tryReleaseShared (int n)
+        {
+            for (;;)
+            {
+                int current = getState ();
+                int next = current + n;
+                if (next < current) throw new Error ("maximum permit count exceeded");
+                if (compareAndSetState (current, next))
+                    return true;
+            }
         }
-        else val -= 1;
     }
-    
+
     /**
-     *  Up operation.
+     *   Non-fair version: a permit is taken whenever one is available.
+     */
+
+    static final class NonfairSync extends Sync
+    {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected int tryAcquireShared (int n)
+        {
+            return nonfairTryAcquireShared (n);
+        }
+    }
+
+    /**
+     *   Fair version: a permit is only taken if no thread is queued ahead.
      */
-    
-    public synchronized void up ()
+
+    static final class FairSync extends Sync
     {
-        if (numbBlockThreads != 0)
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected int tryAcquireShared (int n)
         {
-            numbBlockThreads -= 1;
-            notify();
+            if (hasQueuedPredecessors ()) return -1;
+            return nonfairTryAcquireShared (n);
         }
-        else val += 1;
     }
 }
@@ -0,0 +1,25 @@
+package CommonInfra;
+
+/**
+ *    Source of the wall and of the simulated time elapsed since some start, as needed
+ *    to stamp events. Unlike a {@link Clock}, nothing sleeps on it.
+ */
+
+public interface TimeSource
+{
+  /**
+   *   Wall time elapsed since the start.
+   *
+   *    @return elapsed time, in nanoseconds
+   */
+
+   long wallNanos ();
+
+  /**
+   *   Simulated time elapsed since the start.
+   *
+   *    @return elapsed time, in nanoseconds
+   */
+
+   long simNanos ();
+}
@@ -0,0 +1,330 @@
+package CommonInfra;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ *    Hashed timing wheel (Varghese and Lauck), shared by the threads that sleep on it.
+ *    Time is divided in ticks of a fixed length and the wheel has a power of two number
+ *    of slots, tick <code>k</code> being served by slot <code>k mod size</code>; a
+ *    timeout further away than a turn of the wheel waits in its slot for the turns
+ *    still to go. Scheduling a timeout is a single compare and set on a stack of new
+ *    timeouts, whatever the number of timeouts pending; a dedicated thread moves them
+ *    to their slots at each tick and wakes up every timeout of the slot at once, so the
+ *    sleeping threads are parked without a timer of their own.
+ *    A timeout expires at the first tick at or after its deadline, so it is late by up
+ *    to a tick, plus the time the sleeping thread takes to be woken up. That drift is
+ *    measured by the sleeping threads.
+ *    The wheel's thread parks when there are no timeouts pending.
+ */
+
+public class TimingWheel
+{
+    /**
+     *   Tick length, in nanoseconds.
+     */
+
+    private final long tickNanos;
+
+    /**
+     *   Slots, each one a list of timeouts, and index mask (the size is a power of two).
+     *   Only the wheel's thread touches them.
+     */
+
+    private final Timeout [] slot;
+    private final int mask;
+
+    /**
+     *   Timeouts scheduled and not yet placed in their slot.
+     */
+
+    private final AtomicReference<Timeout> pending = new AtomicReference<> ();
+
+    /**
+     *   Number of timeouts in the slots (owned by the wheel's thread).
+     */
+
+    private int size;
+
+    /**
+     *   Value of <code>System.nanoTime()</code> at tick zero.
+     */
+
+    private final long start;
+
+    /**
+     *   Next tick to be served (owned by the wheel's thread).
+     */
+
+    private long tick;
+
+    /**
+     *   Thread moving the wheel, parked while the wheel is empty.
+     */
+
+    private final Thread worker;
+    private volatile boolean idle;
+
+    /**
+     *   <code>false</code> once the wheel has been stopped.
+     */
+
+    private volatile boolean running = true;
+
+    /**
+     *   Expired timeouts, total and largest drift, in nanoseconds.
+     */
+
+    private final AtomicLong expired = new AtomicLong (),
+                             totalDrift = new AtomicLong (),
+                             maxDrift = new AtomicLong ();
+
+    /**
+     *   Wheel instantiation. Its thread is started at once.
+     *   The number of slots is rounded up to the next power of two.
+     *
+     *     @param tickNanos tick length, in nanoseconds (at least one)
+     *     @param nSlots number of slots (at least one)
+     */
+
+    public TimingWheel (long tickNanos, int nSlots)
+    {
+        if (tickNanos < 1 || nSlots < 1) throw new IllegalArgumentException ("empty wheel");
+        this.tickNanos = tickNanos;
+        int n = 1;
+        while (n < nSlots) n <<= 1;
+        slot = new Timeout [n];
+        mask = n - 1;
+        start = System.nanoTime ();
+        tick = 1;
+
+        worker = new Thread (this::turn, "TimingWheel");
+        worker.setDaemon (true);
+        worker.start ();
+    }
+
+    /**
+     *   Puts the calling thread to sleep, until the wheel wakes it up. If the wheel has
+     *   been stopped, the thread does not sleep at all.
+     *
+     *    @param nanos duration, in nanoseconds
+     *    @throws InterruptedException if the calling thread is interrupted
+     */
+
+    public void sleepNanos (long nanos) throws InterruptedException
+    {
+        if (nanos <= 0 || !running) return;
+        Timeout t = new Timeout (System.nanoTime () + nanos, Thread.currentThread ());
+
+        //Constant time insertion: a push on the stack of new timeouts.
+        Timeout head;
+        do
+        {
+            head = pending.get ();
+            t.next = head;
+        } while (!pending.compareAndSet (head, t));
+        if (idle) LockSupport.unpark (worker);
+
+        //Stopped meanwhile: the timeout may have been pushed after the last look.
+        if (!running) return;
+
+        while (!t.expired)
+        {
+            LockSupport.park (this);
+            if (Thread.interrupted ())
+            {
+                t.cancelled = true;
+                throw new InterruptedException ();
+            }
+        }
+
+        long drift = System.nanoTime () - t.deadline;
+        expired.incrementAndGet ();
+        totalDrift.addAndGet (drift);
+        maxDrift.accumulateAndGet (drift, Math::max);
+    }
+
+    /**
+     *   Stops the wheel, waking up the threads still sleeping on it.
+     */
+
+    public void stop ()
+    {
+        running = false;
+        LockSupport.unpark (worker);
+        try
+        {
+            worker.join ();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread ().interrupt ();
+        }
+    }
+
+    /**
+     *   Number of timeouts expired so far.
+     *
+     *    @return number of timeouts
+     */
+
+    public long getExpired ()
+    {
+        return expired.get ();
+    }
+
+    /**
+     *   Mean time the sleeping threads woke up after their deadline.
+     *
+     *    @return mean drift, in nanoseconds
+     */
+
+    public double getMeanDriftNanos ()
+    {
+        long n = expired.get ();
+        return n == 0 ? 0 : (double) totalDrift.get () / n;
+    }
+
+    /**
+     *   Largest time a sleeping thread woke up after its deadline.
+     *
+     *    @return largest drift, in nanoseconds
+     */
+
+    public long getMaxDriftNanos ()
+    {
+        return maxDrift.get ();
+    }
+
+    /**
+     *   Tick length.
+     *
+     *    @return tick length, in nanoseconds
+     */
+
+    public long getTickNanos ()
+    {
+        return tickNanos;
+    }
+
+    /**
+     *   Life cycle of the wheel's thread: serves every tick that is due, in a batch,
+     *   and sleeps until the next one, or until a timeout is scheduled if the wheel is
+     *   empty.
+     */
+
+    private void turn ()
+    {
+        while (running)
+        {
+            long now = System.nanoTime ();
+            if (size == 0 && pending.get () == null)
+            {
+                //Nothing to wait for: park until a timeout is scheduled, and start
+                //again from the current tick.
+                idle = true;
+                if (pending.get () == null && running) LockSupport.park (this);
+                idle = false;
+                tick = Math.max (tick, (System.nanoTime () - start) / tickNanos + 1);
+                continue;
+            }
+
+            placePending ();
+            while (start + tick * tickNanos - now <= 0)
+            {
+                expire (slot[(int) tick & mask]);
+                tick++;
+                placePending ();
+            }
+            LockSupport.parkNanos (this, start + tick * tickNanos - now);
+        }
+
+        //Stopped: nobody may be left sleeping.
+        placePending ();
+        for (int i = 0; i <= mask; i++)
+            for (Timeout t = slot[i]; t != null; t = t.next)
+                wake (t);
+    }
+
+    /**
+     *   Moves the new timeouts to their slots.
+     */
+
+    private void placePending ()
+    {
+        Timeout t = pending.getAndSet (null);
+        while (t != null)
+        {
+            Timeout next = t.next;
+            if (!t.cancelled)
+            {
+                //Expiry tick: the first one at or after the deadline, but not one
+                //already served.
+                long due = Math.max ((t.deadline - start + tickNanos - 1) / tickNanos, tick);
+                t.rounds = (due - tick) >> Integer.numberOfTrailingZeros (mask + 1);
+                int i = (int) due & mask;
+                t.next = slot[i];
+                slot[i] = t;
+                size++;
+            }
+            t = next;
+        }
+    }
+
+    /**
+     *   Serves a slot: wakes up the timeouts in their last turn, all at once, and keeps
+     *   the others for the next turn.
+     *
+     *    @param head first timeout of the slot
+     */
+
+    private void expire (Timeout head)
+    {
+        int i = (int) tick & mask;
+        Timeout kept = null;
+        slot[i] = null;
+        for (Timeout t = head, next; t != null; t = next)
+        {
+            next = t.next;
+            if (t.cancelled) size--;
+            else if (t.rounds <= 0)
+            {
+                size--;
+                wake (t);
+            }
+            else
+            {
+                t.rounds--;
+                t.next = kept;
+                kept = t;
+            }
+        }
+        slot[i] = kept;
+    }
+
+    private static void wake (Timeout t)
+    {
+        t.expired = true;
+        LockSupport.unpark (t.thread);
+    }
+
+    /**
+     *   Timeout of a sleeping thread.
+     */
+
+    private static final class Timeout
+    {
+        final long deadline;
+        final Thread thread;
+        Timeout next;
+        long rounds;
+        volatile boolean expired, cancelled;
+
+        Timeout (long deadline, Thread thread)
+        {
+            this.deadline = deadline;
+            this.thread = thread;
+        }
+    }
+}
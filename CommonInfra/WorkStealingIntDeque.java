@@ -0,0 +1,132 @@
+package CommonInfra;
+
+/**
+ *    Bounded work-stealing deque of non-negative integers (Chase and Lev).
+ *    The owner pushes and pops at the bottom, as a stack, without contention; other
+ *    threads steal from the top, the oldest values first, and race with each other
+ *    (and with the owner, for the last value) through a compare and set on the top
+ *    index. Both indexes are padded so they do not share a cache line.
+ *    Only the owner may push and pop; any thread may steal.
+ */
+
+public class WorkStealingIntDeque
+{
+    /**
+     *   Value returned when there is nothing to be taken.
+     */
+
+    public static final int EMPTY = -1;
+
+    /**
+     *   Internal storage area.
+     */
+
+    private final int [] mem;
+
+    /**
+     *   Index mask (the size is a power of two).
+     */
+
+    private final int mask;
+
+    /**
+     *   Next position to be stolen.
+     */
+
+    private final PaddedSequence top = new PaddedSequence (0);
+
+    /**
+     *   Next position to be pushed by the owner.
+     */
+
+    private final PaddedSequence bottom = new PaddedSequence (0);
+
+    /**
+     *   Deque instantiation.
+     *   The size is rounded up to the next power of two; sizes smaller than one are
+     *   taken as one. No error is reported.
+     *
+     *     @param nElem deque size
+     */
+
+    public WorkStealingIntDeque (int nElem)
+    {
+        int size = 1;
+        while (size < nElem) size <<= 1;
+        mem = new int [size];
+        mask = size - 1;
+    }
+
+    /**
+     *   Insertion at the bottom, by the owner.
+     *
+     *    @param val non-negative value to be pushed
+     *    @return <code>false</code> if the deque is full
+     */
+
+    public boolean push (int val)
+    {
+        long b = bottom.get ();
+        if (b - top.get () > mask) return false;
+        mem[(int) b & mask] = val;
+        bottom.set (b + 1);
+        return true;
+    }
+
+    /**
+     *   Retrieval from the bottom, by the owner: the last value pushed.
+     *
+     *    @return value, or {@link #EMPTY} if the deque is empty
+     */
+
+    public int pop ()
+    {
+        long b = bottom.get () - 1;
+        bottom.set (b);
+        long t = top.get ();
+        if (t > b)
+        {
+            //Empty: restore the bottom.
+            bottom.set (b + 1);
+            return EMPTY;
+        }
+        int val = mem[(int) b & mask];
+        if (t == b)
+        {
+            //Last value: race the thieves for it.
+            if (!top.compareAndSet (t, t + 1)) val = EMPTY;
+            bottom.set (t + 1);
+        }
+        return val;
+    }
+
+    /**
+     *   Retrieval from the top, by any thread: the oldest value.
+     *   Losing a race with another thief is retried while there are values left.
+     *
+     *    @return value, or {@link #EMPTY} if the deque is empty
+     */
+
+    public int steal ()
+    {
+        for (;;)
+        {
+            long t = top.get ();
+            long b = bottom.get ();
+            if (t >= b) return EMPTY;
+            int val = mem[(int) t & mask];
+            if (top.compareAndSet (t, t + 1)) return val;
+        }
+    }
+
+    /**
+     *   Deque state. The answer may be stale as soon as it is returned.
+     *
+     *    @return <code>true</code> if there is nothing to be taken
+     */
+
+    public boolean isEmpty ()
+    {
+        return top.get () >= bottom.get ();
+    }
+}
@@ -23,16 +23,18 @@ import SharedRegions.SharedBar;
 import SharedRegions.SharedKitchen;
 //Import Chef's states
 import Entities.States.ChefStates;
-//Import problem's constants
-import static Main.Simulator.NCOURSES;
-import static Main.Simulator.NSTUDENTS;
 
 /**
  * Entity Chef, containing his methods and life cycle ({@link #run() run}).
+ * The life cycle may run on a platform or on a virtual thread; the shared 
+ * regions find the chef they are serving through {@link #current()}.
  * @author Daniel Nunes and Rafael Direito.
  */
-public class Chef extends Thread
+public class Chef implements Runnable
 {
+    //Chef whose life cycle the running thread executes
+    private static final ThreadLocal<Chef> CURRENT = new ThreadLocal<>();
+    
     //Define shared regions
     //The Chef will have access to his kitchen and to the bar, so he can
     //call the waiter
@@ -42,16 +44,20 @@ public class Chef extends Thread
     //Define the chef's state
     private ChefStates state;
     
+    //Define the chef's ID
+    private final int ID;
+    
     
     /**
      * Chef's default constructor.
      * @param bar restaurant's shared bar zone
      * @param kit restaurant's shared kitchen zone
+     * @param ID chef's ID
      */
-    public Chef(SharedBar bar,  SharedKitchen kit)
+    public Chef(SharedBar bar,  SharedKitchen kit, int ID)
     {
-        //Thread
-        super();
+        //Initialize chef's ID
+        this.ID = ID;
         
         //Set initial state
         state = ChefStates.WAITOD;
@@ -67,26 +73,44 @@ public class Chef extends Thread
      * @param s receives Chef State, from {@link Entities.States.ChefStates }.
      */
     public void setChefState(ChefStates s) {  state = s; }
+    
+    
+    /**
+     * Used to get the chef's state.
+     * @return Chef State, from {@link Entities.States.ChefStates }.
+     */
+    public ChefStates getChefState() { return state; }
+    
+    
+    /**
+     * Used to get the chef's ID.
+     * @return ID of the chef
+     */
+    public int getChefID() { return ID; }
+    
+    
+    /**
+     * Used to get the chef served by the calling thread.
+     * @return chef whose life cycle the calling thread executes, or 
+     * <code>null</code> if it is not a chef's
+     */
+    public static Chef current() { return CURRENT.get(); }
 
     
     /**
-     * Contains the chef's life cycle, overriding the run method of
-     * a generic thread.
+     * Contains the chef's life cycle, run by the thread given to the chef.
      */
     @Override
     public void run()
     {
+        CURRENT.set(this);
         kit.watchTheNews();
         kit.startPreparation();
-        for ( int nc = 0; nc < NCOURSES; nc++ ) 
+        while (kit.proceedToPresentation()) 
         {
-            kit.proceedToPresentation();
-            for ( int nst = 0; nst < NSTUDENTS; nst++ ) 
-            {
-                kit.alertTheWaiter();
-                if (!kit.haveAllPortionsBeenDelivered()) kit.haveNextPortionReady();
-            }
-            if (!kit.hasTheOrderBeenCompleted()) kit.continuePreparation();
+            kit.alertTheWaiter();
+            if (!kit.haveAllPortionsBeenDelivered()) kit.haveNextPortionReady();
+            else if (!kit.hasTheOrderBeenCompleted()) kit.continuePreparation();
         }
         kit.cleanUp();
     }
@@ -23,19 +23,26 @@ import SharedRegions.SharedBar;
 import SharedRegions.SharedTable;
 //Import Student's states
 import Entities.States.StudentStates;
-//Import problem's constants
-import static Main.Simulator.NCOURSES;
+//Import problem's constants and parameters
+import Main.RestaurantConfig;
+//Import the dinner's clock
+import CommonInfra.Clock;
 import static Main.Simulator.FIRST;
-//Impor math random
-import java.util.Random;
+//Import random streams
+import java.util.SplittableRandom;
 
 
 /**
  * Entity Student, containing his methods and life cycle ({@link #run() run}).
+ * The life cycle may run on a platform or on a virtual thread; the shared 
+ * regions find the student they are serving through {@link #current()}.
  * @author Daniel Nunes and Rafael Direito
  */
-public class Student extends Thread
+public class Student implements Runnable
 {
+    //Student whose life cycle the running thread executes
+    private static final ThreadLocal<Student> CURRENT = new ThreadLocal<>();
+    
     //Define student ID
     private int ID;
     
@@ -47,8 +54,14 @@ public class Student extends Thread
     //Define the student's state
     private StudentStates state;
     
-    //Define random
-    private Random rand;
+    //Define the student's own stream of random walking and eating times
+    private final SplittableRandom rand;
+    
+    //Define the clock the student walks by
+    private final Clock clock;
+    
+    //Define the number of courses
+    private final int nCourses;
     
     
     /**
@@ -56,14 +69,18 @@ public class Student extends Thread
      * @param bar restaurant's shared bar zone
      * @param table restaurant's shared table
      * @param ID student's ID
+     * @param config dinner's parameters
+     * @param clock clock the student walks by
+     * @param rand student's own stream of random walking and eating times
      */
-    public Student(SharedBar bar, SharedTable table, int ID)
+    public Student(SharedBar bar, SharedTable table, int ID, RestaurantConfig config,
+            Clock clock, SplittableRandom rand)
     {
-        //Thread
-        super();
+        //Initialize dinner's parameters
+        nCourses = config.getNCourses();
         
-        //Instanciate and initialize random
-        rand = new Random();
+        //Initialize random, a stream no other entity draws from
+        this.rand = rand;
         
         //Initialize this student's ID
         this.ID = ID;
@@ -74,6 +91,9 @@ public class Student extends Thread
         //Initialize shared regions
         this.bar = bar;
         this.tab = table; 
+        
+        //Initialize the clock
+        this.clock = clock;
     }
     
     
@@ -91,15 +111,31 @@ public class Student extends Thread
     public int getStudentID() { return ID; }
     
     
+    /**
+     * Used to get the student's stream of random times. Only the student's 
+     * own thread may draw from it.
+     * @return random stream of the student
+     */
+    public SplittableRandom getRandom() { return rand; }
+    
+    
+    /**
+     * Used to get the student served by the calling thread.
+     * @return student whose life cycle the calling thread executes, or 
+     * <code>null</code> if it is not a student's
+     */
+    public static Student current() { return CURRENT.get(); }
+    
+    
     /**
      * Invoked by the student when he starts his life cycle.
-     * Contains a sleep function with a random value.
+     * Contains a sleep function with a random value, in the dinner's time.
      */
     public void walkABit()
     {
         try 
         {
-            Thread.sleep((long)(Math.random() * 300));
+            clock.sleep(rand.nextInt(300));
         } 
         catch (InterruptedException ex) 
         {
@@ -110,12 +146,13 @@ public class Student extends Thread
     
  
     /**
-     * Contains the student's life cycle, overriding the run method of
-     * a generic thread.
+     * Contains the student's life cycle, run by the thread given to the
+     * student.
      */    
     @Override
     public void run()
     {
+        CURRENT.set(this);
         int arrivalOrder;
         walkABit();
         arrivalOrder = tab.enter();
@@ -123,8 +160,7 @@ public class Student extends Thread
        
         if (arrivalOrder == FIRST)
         {
-            while(!tab.hasEveryBodyChosen())
-                tab.prepareTheOrder();
+            tab.prepareTheOrder();
             
             bar.callTheWaiter();
             tab.describeTheOrder();
@@ -134,13 +170,13 @@ public class Student extends Thread
         {
             tab.informCompanion();
         }
-        for(int nc=0; nc < NCOURSES ; nc++)
+        for(int nc=0; nc < nCourses ; nc++)
         {
             tab.startEating();
             tab.endEating();
             if(tab.hasEveryBodyFinished())
             {
-                if(nc==(NCOURSES-1))
+                if(nc==(nCourses-1))
                 {
                     tab.shouldHaveArrivedEarlier();
                     tab.honourTheBill();
@@ -22,15 +22,22 @@ package Entities;
 import SharedRegions.SharedBar;
 import SharedRegions.SharedKitchen;
 import SharedRegions.SharedTable;
+//Import service requests
+import SharedRegions.Request;
 //Import Waiter's states
 import Entities.States.WaiterStates;
 
 /**
  * Entity Waiter, containing his methods and life cycle ({@link #run() run}).
+ * The life cycle may run on a platform or on a virtual thread; the shared 
+ * regions find the waiter they are serving through {@link #current()}.
  * @author Daniel Nunes and Rafael Direito
  */
-public class Waiter extends Thread
+public class Waiter implements Runnable
 {
+    //Waiter whose life cycle the running thread executes
+    private static final ThreadLocal<Waiter> CURRENT = new ThreadLocal<>();
+    
     //Define shared regions
     //The Waiter will have access to the table, to the bar and to the kitchen
     private SharedTable tab; 
@@ -49,9 +56,6 @@ public class Waiter extends Thread
      */
     public Waiter(SharedBar bar, SharedTable tab, SharedKitchen kit)
     {
-        //Thread
-        super();
-        
         //Initialize waiter state
         state = WaiterStates.APPSIT;
         
@@ -70,46 +74,57 @@ public class Waiter extends Thread
     
     
     /**
-     * Contains the student's life cycle, overriding the run method of
-     * a generic thread.
+     * Used to get the waiter served by the calling thread.
+     * @return waiter whose life cycle the calling thread executes, or 
+     * <code>null</code> if it is not a waiter's
+     */
+    public static Waiter current() { return CURRENT.get(); }
+    
+    
+    /**
+     * Contains the waiter's life cycle, run by the thread given to the
+     * waiter.
      */    
     @Override
     public void run()
     {
-        char alt;
+        CURRENT.set(this);
+        Request req;
         
-        while((alt = bar.lookAround()) != 'E')
+        while((req = bar.lookAround()).getType() != Request.Type.END)
         {
-            switch(alt)
+            switch(req.getType())
             {
-                case 'N':
+                case SALUTE:
                     tab.saluteTheClient();
                     break;
                
-                case 'O' :
+                case ORDER :
                     tab.getThePad();
                     kit.handNoteToTheChef();
                     break;
                     
-                case 'C' :
+                case COLLECT :
                     do
                     {
-                        kit.collectPortion();
-                        tab.deliverPortion();
+                        tab.deliverPortions(kit.collectPortions());
                     } while(!tab.haveAllClientsBeenServed());
                     break;
                 
-                case 'P' :
+                case BILL :
                     bar.prepareTheBill();
                     tab.presentTheBill();
                     break;
                     
-                case 'G' :
+                case GOODBYE :
                     bar.sayGoodbye();
                     break;
+                    
+                default :
+                    break;
             }
             
-            if(alt != 'G') bar.returnToTheBar();
+            if(req.getType() != Request.Type.GOODBYE) bar.returnToTheBar();
         }
     }
 }
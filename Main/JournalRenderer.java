@@ -0,0 +1,54 @@
+/*
+ * The problem:
+ * "Events portray activities that take place when a group of students, enrolled in
+ * Computação Distribuída, go to a famous restaurant downtown for a gourmet dinner 
+ * to celebrate the beginning of the second semester. There are three main locations
+ * within the restaurant that should be accounted for: the table where the students 
+ * sit to have their meal, the kitchen where the chef prepares it according to the
+ * orders placed by the students, and the bar where the waiter stands waiting for 
+ * service requests. There are, furthermore, three kinds of interacting entities: 
+ * N students , one waiter and one chef."
+ * 
+ * The main goal of this project is to design and implement a solution to the 
+ * problem given above.
+ * 
+ * This project was developed during the course of Distributed Computing, at the 
+ * University of Aveiro, under the supervision of Prof. António Rui Borges.
+ */
+
+
+package Main;
+
+//Import Shared Regions
+import SharedRegions.SharedRepo;
+
+import java.io.IOException;
+
+
+/**
+ * Offline renderer of the binary log journal into the text log.
+ * Usage: <code>java Main.JournalRenderer [journal] [text log] [times]</code>,
+ * by default from <code>RestaurantLog.jnl</code> into
+ * <code>RestaurantLog.txt</code>; with <code>times</code>, each states line
+ * ends with the wall and the simulated time of its event.
+ * @author Daniel Nunes and Rafael Direito
+ */
+public class JournalRenderer 
+{
+    public static void main(String[] args) 
+    {
+        String journal = args.length > 0 ? args[0] : "RestaurantLog.jnl";
+        String text = args.length > 1 ? args[1] : "RestaurantLog.txt";
+        boolean times = args.length > 2 && args[2].equals("times");
+        
+        try
+        {
+            SharedRepo.renderJournal(journal, text, times);
+        }
+        catch (IOException e)
+        {
+            System.err.println("Unable to render the journal: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
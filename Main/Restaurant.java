@@ -0,0 +1,317 @@
+/*
+ * The problem:
+ * "Events portray activities that take place when a group of students, enrolled in
+ * Computação Distribuída, go to a famous restaurant downtown for a gourmet dinner 
+ * to celebrate the beginning of the second semester. There are three main locations
+ * within the restaurant that should be accounted for: the table where the students 
+ * sit to have their meal, the kitchen where the chef prepares it according to the
+ * orders placed by the students, and the bar where the waiter stands waiting for 
+ * service requests. There are, furthermore, three kinds of interacting entities: 
+ * N students , one waiter and one chef."
+ * 
+ * The main goal of this project is to design and implement a solution to the 
+ * problem given above.
+ * 
+ * This project was developed during the course of Distributed Computing, at the 
+ * University of Aveiro, under the supervision of Prof. António Rui Borges.
+ */
+
+package Main;
+
+//Import Shared Regions
+import SharedRegions.SharedBar;
+import SharedRegions.SharedKitchen;
+import SharedRegions.SharedRepo;
+import SharedRegions.SharedTable;
+import SharedRegions.QueueingDelays;
+import SharedRegions.TableContention;
+//Import Entities
+import Entities.Waiter;
+import Entities.Student;
+import Entities.Chef;
+//Import problem's options
+import Main.Simulator.ThreadMode;
+//Import the dinner's clock
+import CommonInfra.Clock;
+import CommonInfra.TimingWheel;
+
+import java.lang.reflect.Method;
+import java.util.SplittableRandom;
+
+
+
+/**
+ * A restaurant hosting one dinner: its shared regions and its entities.
+ * Every state of the dinner belongs to the instance, so many restaurants can
+ * run at the same time in the same JVM, each one logging to its own file.
+ * The entities run on platform threads or, where the JVM has them, on 
+ * virtual threads, so that a large dinner does not need as many operating
+ * system threads as students.
+ * Walking and eating take the time of the dinner's {@link Clock}, which may
+ * run faster than the wall clock, or take no time at all, so that the 
+ * protocol can be run at full speed. The entities of every dinner may sleep
+ * on a single {@link TimingWheel}, rather than on a timer of each thread.
+ * @author Daniel Nunes and Rafael Direito
+ */
+public class Restaurant 
+{
+    /**
+     * Shared regions.
+     */
+    private final SharedRepo repo;
+    private final SharedBar bar;
+    private final SharedTable tab;
+    private final SharedKitchen kit;
+    
+    /**
+     * Entities.
+     */
+    private final Student[] student;
+    private final Waiter[] waiter;
+    private final Chef[] chef;
+    
+    /**
+     * Threads running the entities.
+     */
+    private final Thread[] studentThread;
+    private final Thread[] waiterThread;
+    private final Thread[] chefThread;
+    
+    /**
+     * Clock the entities sleep by and the log is stamped with.
+     */
+    private final Clock clock;
+    
+    /**
+     * Wall and simulated duration of the dinner, in nanoseconds, once it is
+     * over.
+     */
+    private long wallNanos, simNanos;
+    
+    /**
+     * Builder of virtual threads and its method creating an unstarted thread,
+     * looked up by reflection; <code>null</code> if the JVM has none.
+     */
+    private static final Object VIRTUAL_BUILDER;
+    private static final Method UNSTARTED;
+    
+    static
+    {
+        Object builder;
+        Method unstarted;
+        try
+        {
+            builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            unstarted = Class.forName("java.lang.Thread$Builder")
+                    .getMethod("unstarted", Runnable.class);
+        }
+        catch (ReflectiveOperationException | RuntimeException e)
+        {
+            //Java 17 has no virtual threads (and Java 19 and 20 only as a 
+            //preview feature)
+            builder = null;
+            unstarted = null;
+        }
+        VIRTUAL_BUILDER = builder;
+        UNSTARTED = unstarted;
+    }
+    
+    /**
+     * Name of the log's file.
+     */
+    private final String logName;
+    
+    /**
+     * If <code>true</code>, the start and end of each entity is reported on
+     * the standard output.
+     */
+    private final boolean verbose;
+    
+    
+    /**
+     * Creates the restaurant's shared regions and entities.
+     * @param config dinner's parameters
+     * @param logName name of the log's file
+     * @param verbose if <code>true</code>, the start and end of each entity 
+     * is reported on the standard output
+     * @param random dinner's random stream, from which the stream of each 
+     * student is split
+     * @param wheel timing wheel the entities sleep on, or <code>null</code>
+     * to sleep on a timer of each thread
+     */
+    public Restaurant(RestaurantConfig config, String logName, boolean verbose,
+            SplittableRandom random, TimingWheel wheel)
+    {
+        this.logName = logName;
+        this.verbose = verbose;
+        int nStudents = config.getNStudents();
+        
+        //Create the dinner's clock.
+        switch(config.getClock())
+        {
+            case SCALED:
+                clock = Clock.scaled(config.getClockScale(), wheel);
+                break;
+            case ZERO:
+                clock = Clock.zeroDelay();
+                break;
+            default:
+                clock = Clock.real(wheel);
+        }
+        
+        //Create shared regions.
+        repo = new SharedRepo(config, clock);
+        bar = new SharedBar(repo, config);
+        tab = new SharedTable(repo, bar, config, clock);
+        kit = new SharedKitchen(repo, bar, config);
+        
+        //Instanciate entities.
+        waiter = new Waiter[config.getNWaiters()];
+        for (int w = 0; w < waiter.length; w++)
+            waiter[w] = new Waiter(bar, tab, kit);
+        chef = new Chef[config.getNChefs()];
+        for (int c = 0; c < chef.length; c++)
+            chef[c] = new Chef(bar, kit, c);
+        student = new Student[nStudents];
+        for (int i = 0; i < nStudents; i++)
+            student[i] = new Student(bar, tab, i, config, clock, random.split());
+        
+        //Give each entity its thread.
+        ThreadMode mode = config.getThreads();
+        waiterThread = new Thread[waiter.length];
+        for (int w = 0; w < waiter.length; w++)
+            waiterThread[w] = newThread(waiter[w], "Waiter-" + w, mode);
+        chefThread = new Thread[chef.length];
+        for (int c = 0; c < chef.length; c++)
+            chefThread[c] = newThread(chef[c], "Chef-" + c, mode);
+        studentThread = new Thread[nStudents];
+        for (int i = 0; i < nStudents; i++)
+            studentThread[i] = newThread(student[i], "Student-" + i, mode);
+    }
+    
+    
+    /**
+     * @return <code>true</code> if the JVM can run the entities on virtual 
+     * threads.
+     */
+    public static boolean hasVirtualThreads() { return VIRTUAL_BUILDER != null; }
+    
+    
+    /**
+     * Creates the thread running an entity.
+     * @param entity entity's life cycle
+     * @param name thread's name
+     * @param mode kind of thread; virtual threads fall back to platform ones 
+     * if the JVM has none
+     * @return unstarted thread
+     */
+    private static Thread newThread(Runnable entity, String name, ThreadMode mode)
+    {
+        Thread t = null;
+        if(mode == ThreadMode.VIRTUAL && VIRTUAL_BUILDER != null)
+        {
+            try
+            {
+                t = (Thread) UNSTARTED.invoke(VIRTUAL_BUILDER, entity);
+            }
+            catch (ReflectiveOperationException e)
+            {
+                t = null;
+            }
+        }
+        if(t == null)
+            t = new Thread(entity);
+        t.setName(name);
+        return t;
+    }
+    
+    
+    /**
+     * Writes the log's header and starts the entities.
+     */
+    public void start()
+    {
+        //The dinner's time starts now.
+        clock.restart();
+        repo.writeHeader(logName);
+        
+        for (int t = 0; t < student.length; t++)
+        {
+            studentThread[t].start();
+            if(verbose) System.out.println("\u001B[32m Student S" + t + " is starting.");
+        }
+        for (int w = 0; w < waiter.length; w++)
+        {
+            waiterThread[w].start();
+            if(verbose) System.out.println("\033[1;32m Waiter W" + w + " is starting.");
+        }
+        for (int c = 0; c < chef.length; c++)
+        {
+            chefThread[c].start();
+            if(verbose) System.out.println("\033[1;32m Chef C" + c + " is starting.");
+        }
+    }
+    
+    
+    /**
+     * Waits for the end of the dinner and closes the log's file.
+     * @throws InterruptedException if the calling thread is interrupted while
+     * waiting for an entity
+     */
+    public void join() throws InterruptedException
+    {
+        for (int t = 0; t < student.length; t++)
+        {
+            studentThread[t].join();
+            if(verbose) System.out.println("\u001B[31m Student S" + t + " has ended.");
+        }
+        for (int c = 0; c < chef.length; c++)
+        {
+            chefThread[c].join();
+            if(verbose) System.out.println("\u001B[31m Chef C" + c + " has ended.");
+        }
+        for (int w = 0; w < waiter.length; w++)
+        {
+            waiterThread[w].join();
+            if(verbose) System.out.println("\u001B[31m Waiter W" + w + " has ended.");
+        }
+        
+        //The dinner is over.
+        wallNanos = clock.wallNanos();
+        simNanos = clock.simNanos();
+        
+        //Write the remaining log lines and close the log's file.
+        repo.closeLog();
+    }
+    
+    
+    /**
+     * @return Time the requests waited at the bar, by kind of request.
+     */
+    public QueueingDelays getQueueingDelays() { return bar.getQueueingDelays(); }
+    
+    
+    /**
+     * @return Contention on the locks of the table.
+     */
+    public TableContention getTableContention() { return tab.getContention(); }
+    
+    
+    /**
+     * @return Wall duration of the dinner, in nanoseconds, once it is over.
+     */
+    public long getWallNanos() { return wallNanos; }
+    
+    
+    /**
+     * @return Simulated duration of the dinner, in nanoseconds, once it is 
+     * over.
+     */
+    public long getSimNanos() { return simNanos; }
+    
+    
+    /**
+     * @return Name of the log's file.
+     */
+    public String getLogName() { return logName; }
+}
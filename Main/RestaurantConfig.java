@@ -0,0 +1,627 @@
+/*
+ * The problem:
+ * "Events portray activities that take place when a group of students, enrolled in
+ * Computação Distribuída, go to a famous restaurant downtown for a gourmet dinner 
+ * to celebrate the beginning of the second semester. There are three main locations
+ * within the restaurant that should be accounted for: the table where the students 
+ * sit to have their meal, the kitchen where the chef prepares it according to the
+ * orders placed by the students, and the bar where the waiter stands waiting for 
+ * service requests. There are, furthermore, three kinds of interacting entities: 
+ * N students , one waiter and one chef."
+ * 
+ * The main goal of this project is to design and implement a solution to the 
+ * problem given above.
+ * 
+ * This project was developed during the course of Distributed Computing, at the 
+ * University of Aveiro, under the supervision of Prof. António Rui Borges.
+ */
+
+
+package Main;
+
+//Import log flush policies
+import CommonInfra.LogWriter.FlushPolicy;
+//Import log options
+import Main.Simulator.Backpressure;
+import Main.Simulator.BarPolicy;
+import Main.Simulator.LogFormat;
+import Main.Simulator.ThreadMode;
+import Main.Simulator.Engine;
+import Main.Simulator.ClockMode;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+import java.util.SplittableRandom;
+
+
+/**
+ * Parameters of a dinner, chosen at run time.
+ * Each parameter starts with its default value from {@link Simulator} and can
+ * be overridden, by increasing order of precedence, by a properties file, by a
+ * system property prefixed with <code>restaurant.</code> and by a command line
+ * argument of the form <code>key=value</code> (or <code>--key=value</code>).
+ * The properties file is given by the <code>config</code> key, on the command
+ * line or as the <code>restaurant.config</code> system property.
+ * Keys: <code>students</code>, <code>courses</code>, <code>chefs</code>, 
+ * <code>kitchen.passSize</code>, <code>waiters</code>,
+ * <code>waiter.traySize</code>, <code>dinners</code>,
+ * <code>adaptiveHandoff</code>, <code>log.async</code>, <code>log.format</code>,
+ * <code>log.flushPolicy</code>, <code>log.flushLines</code>,
+ * <code>log.flushMillis</code>, <code>log.ringSize</code>,
+ * <code>log.backpressure</code>, <code>bar.policy</code>, 
+ * <code>bar.agingMillis</code>, <code>bar.batchSalute</code>, 
+ * <code>table.striped</code>, <code>table.barrierFanIn</code>, 
+ * <code>threads</code>, <code>engine</code>, <code>clock</code>, 
+ * <code>clock.scale</code>, <code>log.times</code>, <code>seed</code>,
+ * <code>timer.wheel</code>, <code>timer.tickMicros</code>, 
+ * <code>timer.wheelSize</code>.
+ * @author Daniel Nunes and Rafael Direito
+ */
+public class RestaurantConfig 
+{
+    /**
+     * Prefix of the system properties.
+     */
+    private static final String PREFIX = "restaurant.";
+    
+    /**
+     * Largest number of students, limited by the encoding of the log events.
+     */
+    public static final int MAX_STUDENTS = 1 << 20;
+    
+    /**
+     * Largest number of courses, limited by the encoding of the log events.
+     */
+    public static final int MAX_COURSES = Short.MAX_VALUE;
+    
+    /**
+     * Number of students attending at the dinner.
+     */
+    private final int nStudents;
+    
+    /**
+     * Number of courses.
+     */
+    private final int nCourses;
+    
+    /**
+     * Number of chefs sharing the kitchen.
+     */
+    private final int nChefs;
+    
+    /**
+     * Number of portions the kitchen's pass can hold.
+     */
+    private final int passSize;
+    
+    /**
+     * Number of waiters serving at the bar.
+     */
+    private final int nWaiters;
+    
+    /**
+     * Number of portions a waiter carries from the kitchen in each trip.
+     */
+    private final int traySize;
+    
+    /**
+     * Number of dinners run in parallel, each one in its own restaurant.
+     */
+    private final int nDinners;
+    
+    /**
+     * If <code>true</code>, the chef / waiter hand-off semaphores spin briefly
+     * before parking.
+     */
+    private final boolean adaptiveHandoff;
+    
+    /**
+     * If <code>true</code>, a dedicated thread writes the log.
+     */
+    private final boolean asyncLog;
+    
+    /**
+     * Format of the log.
+     */
+    private final LogFormat logFormat;
+    
+    /**
+     * When the log lines are written to the file.
+     */
+    private final FlushPolicy logFlushPolicy;
+    
+    /**
+     * Number of log lines between flushes.
+     */
+    private final int logFlushLines;
+    
+    /**
+     * Milliseconds between flushes.
+     */
+    private final long logFlushMillis;
+    
+    /**
+     * Number of events the log ring can hold (at least two).
+     */
+    private final int logRingSize;
+    
+    /**
+     * What an entity does when the log ring is full.
+     */
+    private final Backpressure logBackpressure;
+    
+    /**
+     * Order in which the waiters serve the requests at the bar.
+     */
+    private final BarPolicy barPolicy;
+    
+    /**
+     * Waiting time that raises a request by one priority level.
+     */
+    private final long barAgingMillis;
+    
+    /**
+     * If <code>true</code>, a waiter salutes every student that has arrived
+     * in a single trip.
+     */
+    private final boolean batchSalute;
+    
+    /**
+     * If <code>true</code>, each phase of the dinner at the table has its own
+     * lock.
+     */
+    private final boolean tableStriped;
+    
+    /**
+     * Maximum number of students counted by each node of the end of course 
+     * barrier.
+     */
+    private final int barrierFanIn;
+    
+    /**
+     * Kind of threads running the entities.
+     */
+    private final ThreadMode threads;
+    
+    /**
+     * Engine running the dinners.
+     */
+    private final Engine engine;
+    
+    /**
+     * Clock the entities sleep through.
+     */
+    private final ClockMode clock;
+    
+    /**
+     * Number of times a scaled clock runs faster than real time.
+     */
+    private final int clockScale;
+    
+    /**
+     * If <code>true</code>, the states lines of the text log end with the
+     * wall and the simulated time of their event.
+     */
+    private final boolean logTimes;
+    
+    /**
+     * Master seed of the random walking and eating times.
+     */
+    private final long seed;
+    
+    /**
+     * If <code>true</code>, the entities sleep on a shared timing wheel.
+     */
+    private final boolean timerWheel;
+    
+    /**
+     * Tick of the timing wheel, in microseconds.
+     */
+    private final int timerTickMicros;
+    
+    /**
+     * Number of slots of the timing wheel.
+     */
+    private final int timerWheelSize;
+    
+    
+    /**
+     * Configuration with the default values.
+     */
+    public RestaurantConfig()
+    {
+        this(new Properties());
+    }
+    
+    
+    /**
+     * Configuration with the values given as properties; missing keys take 
+     * their default value.
+     * @param p Parameters, by key.
+     * @throws IllegalArgumentException if a value is not valid.
+     */
+    public RestaurantConfig(Properties p)
+    {
+        nStudents = intValue(p, "students", Simulator.NSTUDENTS);
+        nCourses = intValue(p, "courses", Simulator.NCOURSES);
+        nChefs = intValue(p, "chefs", Simulator.NCHEFS);
+        passSize = intValue(p, "kitchen.passSize", Simulator.PASS_SIZE);
+        nWaiters = intValue(p, "waiters", Simulator.NWAITERS);
+        traySize = intValue(p, "waiter.traySize", Simulator.TRAY_SIZE);
+        nDinners = intValue(p, "dinners", Simulator.NDINNERS);
+        adaptiveHandoff = boolValue(p, "adaptiveHandoff", Simulator.ADAPTIVE_HANDOFF);
+        asyncLog = boolValue(p, "log.async", Simulator.ASYNC_LOG);
+        logFormat = enumValue(p, "log.format", Simulator.LOG_FORMAT);
+        logFlushPolicy = enumValue(p, "log.flushPolicy", Simulator.LOG_FLUSH_POLICY);
+        logFlushLines = intValue(p, "log.flushLines", Simulator.LOG_FLUSH_LINES);
+        logFlushMillis = intValue(p, "log.flushMillis", (int) Simulator.LOG_FLUSH_MILLIS);
+        logRingSize = intValue(p, "log.ringSize", Simulator.LOG_RING_SIZE);
+        logBackpressure = enumValue(p, "log.backpressure", Simulator.LOG_BACKPRESSURE);
+        barPolicy = enumValue(p, "bar.policy", Simulator.BAR_POLICY);
+        barAgingMillis = intValue(p, "bar.agingMillis", (int) Simulator.BAR_AGING_MILLIS);
+        batchSalute = boolValue(p, "bar.batchSalute", Simulator.BATCH_SALUTE);
+        tableStriped = boolValue(p, "table.striped", Simulator.TABLE_STRIPED);
+        barrierFanIn = intValue(p, "table.barrierFanIn", Simulator.BARRIER_FAN_IN);
+        threads = enumValue(p, "threads", Simulator.THREADS);
+        engine = enumValue(p, "engine", Simulator.ENGINE);
+        clock = enumValue(p, "clock", Simulator.CLOCK);
+        clockScale = intValue(p, "clock.scale", Simulator.CLOCK_SCALE);
+        logTimes = boolValue(p, "log.times", Simulator.LOG_TIMES);
+        long s = longValue(p, "seed", Simulator.SEED);
+        while(s == 0)
+            s = new SplittableRandom().nextLong();
+        seed = s;
+        timerWheel = boolValue(p, "timer.wheel", Simulator.TIMER_WHEEL);
+        timerTickMicros = intValue(p, "timer.tickMicros", Simulator.TIMER_TICK_MICROS);
+        timerWheelSize = intValue(p, "timer.wheelSize", Simulator.TIMER_WHEEL_SIZE);
+        
+        if(nStudents < 1 || nStudents > MAX_STUDENTS)
+            throw new IllegalArgumentException("students must be between 1 and " + MAX_STUDENTS);
+        if(nCourses < 1 || nCourses > MAX_COURSES)
+            throw new IllegalArgumentException("courses must be between 1 and " + MAX_COURSES);
+        if(nChefs < 1)
+            throw new IllegalArgumentException("chefs must be positive");
+        if(passSize < 1)
+            throw new IllegalArgumentException("kitchen.passSize must be positive");
+        if(nWaiters < 1)
+            throw new IllegalArgumentException("waiters must be positive");
+        if(traySize < 1)
+            throw new IllegalArgumentException("waiter.traySize must be positive");
+        if(barrierFanIn < 2)
+            throw new IllegalArgumentException("table.barrierFanIn must be at least 2");
+        if(nDinners < 1)
+            throw new IllegalArgumentException("dinners must be positive");
+        if(logFlushLines < 1 || logFlushMillis < 0)
+            throw new IllegalArgumentException("log sizes must be positive");
+        if(logRingSize < 2)
+            throw new IllegalArgumentException("log.ringSize must be at least 2");
+        if(barAgingMillis < 1)
+            throw new IllegalArgumentException("bar.agingMillis must be positive");
+        if(clockScale < 1)
+            throw new IllegalArgumentException("clock.scale must be positive");
+        if(timerTickMicros < 1 || timerWheelSize < 1)
+            throw new IllegalArgumentException("timer sizes must be positive");
+    }
+    
+    
+    /**
+     * Configuration from a properties file, the system properties and the
+     * command line arguments.
+     * @param args Command line arguments, of the form <code>key=value</code>.
+     * @return Configuration.
+     * @throws IllegalArgumentException if an argument or a value is not valid,
+     * or the properties file cannot be read.
+     */
+    public static RestaurantConfig load(String[] args)
+    {
+        Properties cli = new Properties();
+        for(String arg : args)
+        {
+            String a = arg.startsWith("--") ? arg.substring(2) : arg;
+            int eq = a.indexOf('=');
+            if(eq <= 0)
+                throw new IllegalArgumentException("Invalid argument: " + arg);
+            cli.setProperty(a.substring(0, eq).trim(), a.substring(eq + 1).trim());
+        }
+        
+        Properties sys = new Properties();
+        for(String key : System.getProperties().stringPropertyNames())
+            if(key.startsWith(PREFIX))
+                sys.setProperty(key.substring(PREFIX.length()), System.getProperty(key));
+        
+        //Properties file first, then system properties, then command line.
+        Properties p = new Properties();
+        String file = cli.getProperty("config", sys.getProperty("config"));
+        if(file != null)
+            try (InputStream in = new FileInputStream(file))
+            {
+                p.load(in);
+            }
+            catch (IOException e)
+            {
+                throw new IllegalArgumentException("Unable to read " + file);
+            }
+        p.putAll(sys);
+        p.putAll(cli);
+        
+        return new RestaurantConfig(p);
+    }
+    
+    
+    /**
+     * Configuration equal to this one, except for the number of students.
+     * @param nStudents Number of students.
+     * @return Configuration.
+     */
+    public RestaurantConfig withStudents(int nStudents)
+    {
+        Properties p = toProperties();
+        p.setProperty("students", Integer.toString(nStudents));
+        return new RestaurantConfig(p);
+    }
+    
+    
+    /**
+     * Parameters of this configuration, by key.
+     * @return Parameters.
+     */
+    public Properties toProperties()
+    {
+        Properties p = new Properties();
+        p.setProperty("students", Integer.toString(nStudents));
+        p.setProperty("courses", Integer.toString(nCourses));
+        p.setProperty("chefs", Integer.toString(nChefs));
+        p.setProperty("kitchen.passSize", Integer.toString(passSize));
+        p.setProperty("waiters", Integer.toString(nWaiters));
+        p.setProperty("waiter.traySize", Integer.toString(traySize));
+        p.setProperty("dinners", Integer.toString(nDinners));
+        p.setProperty("adaptiveHandoff", Boolean.toString(adaptiveHandoff));
+        p.setProperty("log.async", Boolean.toString(asyncLog));
+        p.setProperty("log.format", logFormat.name());
+        p.setProperty("log.flushPolicy", logFlushPolicy.name());
+        p.setProperty("log.flushLines", Integer.toString(logFlushLines));
+        p.setProperty("log.flushMillis", Long.toString(logFlushMillis));
+        p.setProperty("log.ringSize", Integer.toString(logRingSize));
+        p.setProperty("log.backpressure", logBackpressure.name());
+        p.setProperty("bar.policy", barPolicy.name());
+        p.setProperty("bar.agingMillis", Long.toString(barAgingMillis));
+        p.setProperty("bar.batchSalute", Boolean.toString(batchSalute));
+        p.setProperty("table.striped", Boolean.toString(tableStriped));
+        p.setProperty("table.barrierFanIn", Integer.toString(barrierFanIn));
+        p.setProperty("threads", threads.name());
+        p.setProperty("engine", engine.name());
+        p.setProperty("clock", clock.name());
+        p.setProperty("clock.scale", Integer.toString(clockScale));
+        p.setProperty("log.times", Boolean.toString(logTimes));
+        p.setProperty("seed", Long.toString(seed));
+        p.setProperty("timer.wheel", Boolean.toString(timerWheel));
+        p.setProperty("timer.tickMicros", Integer.toString(timerTickMicros));
+        p.setProperty("timer.wheelSize", Integer.toString(timerWheelSize));
+        return p;
+    }
+    
+    
+    /**
+     * @return Number of students attending at the dinner.
+     */
+    public int getNStudents() { return nStudents; }
+    
+    /**
+     * @return Number of courses.
+     */
+    public int getNCourses() { return nCourses; }
+    
+    /**
+     * @return Number of chefs sharing the kitchen.
+     */
+    public int getNChefs() { return nChefs; }
+    
+    /**
+     * @return Number of portions the kitchen's pass can hold.
+     */
+    public int getPassSize() { return passSize; }
+    
+    /**
+     * @return Number of waiters serving at the bar.
+     */
+    public int getNWaiters() { return nWaiters; }
+    
+    /**
+     * @return Number of portions a waiter carries from the kitchen in each 
+     * trip.
+     */
+    public int getTraySize() { return traySize; }
+    
+    /**
+     * @return Number of dinners run in parallel.
+     */
+    public int getNDinners() { return nDinners; }
+    
+    /**
+     * @return <code>true</code> if the chef / waiter hand-off semaphores spin
+     * briefly before parking.
+     */
+    public boolean isAdaptiveHandoff() { return adaptiveHandoff; }
+    
+    /**
+     * @return <code>true</code> if a dedicated thread writes the log.
+     */
+    public boolean isAsyncLog() { return asyncLog; }
+    
+    /**
+     * @return Format of the log.
+     */
+    public LogFormat getLogFormat() { return logFormat; }
+    
+    /**
+     * @return When the log lines are written to the file.
+     */
+    public FlushPolicy getLogFlushPolicy() { return logFlushPolicy; }
+    
+    /**
+     * @return Number of log lines between flushes.
+     */
+    public int getLogFlushLines() { return logFlushLines; }
+    
+    /**
+     * @return Milliseconds between flushes.
+     */
+    public long getLogFlushMillis() { return logFlushMillis; }
+    
+    /**
+     * @return Number of events the log ring can hold.
+     */
+    public int getLogRingSize() { return logRingSize; }
+    
+    /**
+     * @return What an entity does when the log ring is full.
+     */
+    public Backpressure getLogBackpressure() { return logBackpressure; }
+    
+    /**
+     * @return Order in which the waiters serve the requests at the bar.
+     */
+    public BarPolicy getBarPolicy() { return barPolicy; }
+    
+    /**
+     * @return Waiting time that raises a request by one priority level.
+     */
+    public long getBarAgingMillis() { return barAgingMillis; }
+    
+    /**
+     * @return <code>true</code> if a waiter salutes every student that has
+     * arrived in a single trip.
+     */
+    public boolean isBatchSalute() { return batchSalute; }
+    
+    /**
+     * @return <code>true</code> if each phase of the dinner at the table has
+     * its own lock.
+     */
+    public boolean isTableStriped() { return tableStriped; }
+    
+    /**
+     * @return Maximum number of students counted by each node of the end of 
+     * course barrier.
+     */
+    public int getBarrierFanIn() { return barrierFanIn; }
+    
+    /**
+     * @return Kind of threads running the entities.
+     */
+    public ThreadMode getThreads() { return threads; }
+    
+    /**
+     * @return Engine running the dinners.
+     */
+    public Engine getEngine() { return engine; }
+    
+    /**
+     * @return Clock the entities sleep through.
+     */
+    public ClockMode getClock() { return clock; }
+    
+    /**
+     * @return Number of times a scaled clock runs faster than real time.
+     */
+    public int getClockScale() { return clockScale; }
+    
+    /**
+     * @return <code>true</code> if the states lines of the text log end with
+     * the wall and the simulated time of their event.
+     */
+    public boolean isLogTimes() { return logTimes; }
+    
+    /**
+     * @return Master seed of the random walking and eating times (never zero:
+     * a seed drawn for this run, if none was given), from which the stream 
+     * of each dinner and of each of its students is split.
+     */
+    public long getSeed() { return seed; }
+    
+    /**
+     * @return <code>true</code> if the entities sleep on a shared timing 
+     * wheel.
+     */
+    public boolean isTimerWheel() { return timerWheel; }
+    
+    /**
+     * @return Tick of the timing wheel, in microseconds.
+     */
+    public int getTimerTickMicros() { return timerTickMicros; }
+    
+    /**
+     * @return Number of slots of the timing wheel.
+     */
+    public int getTimerWheelSize() { return timerWheelSize; }
+    
+    
+    @Override
+    public String toString()
+    {
+        return toProperties().toString();
+    }
+    
+    
+    private static int intValue(Properties p, String key, int def)
+    {
+        String v = p.getProperty(key);
+        if(v == null)
+            return def;
+        try
+        {
+            return Integer.parseInt(v.trim());
+        }
+        catch (NumberFormatException e)
+        {
+            throw new IllegalArgumentException("Invalid value for " + key + ": " + v);
+        }
+    }
+    
+    
+    private static long longValue(Properties p, String key, long def)
+    {
+        String v = p.getProperty(key);
+        if(v == null)
+            return def;
+        try
+        {
+            return Long.parseLong(v.trim());
+        }
+        catch (NumberFormatException e)
+        {
+            throw new IllegalArgumentException("Invalid value for " + key + ": " + v);
+        }
+    }
+    
+    
+    private static boolean boolValue(Properties p, String key, boolean def)
+    {
+        String v = p.getProperty(key);
+        if(v == null)
+            return def;
+        if(v.trim().equalsIgnoreCase("true"))
+            return true;
+        if(v.trim().equalsIgnoreCase("false"))
+            return false;
+        throw new IllegalArgumentException("Invalid value for " + key + ": " + v);
+    }
+    
+    
+    private static <E extends Enum<E>> E enumValue(Properties p, String key, E def)
+    {
+        String v = p.getProperty(key);
+        if(v == null)
+            return def;
+        try
+        {
+            return Enum.valueOf(def.getDeclaringClass(), v.trim().toUpperCase());
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new IllegalArgumentException("Invalid value for " + key + ": " + v);
+        }
+    }
+}
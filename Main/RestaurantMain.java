@@ -18,98 +18,189 @@
 
 package Main;
 
-//Import Shared Regions
-import SharedRegions.SharedBar;
-import SharedRegions.SharedKitchen;
+//Import problem's options
+import Main.Simulator.LogFormat;
+import Main.Simulator.ThreadMode;
+import Main.Simulator.Engine;
+//Import the discrete event simulation
+import Simulation.DinnerSimulation;
+import Simulation.EventCalendar;
+import Simulation.VirtualClock;
+//Import shared repository
 import SharedRegions.SharedRepo;
-import SharedRegions.SharedTable;
-//Import Entities
-import Entities.Waiter;
-import Entities.Student;
-import Entities.Chef;
-//Import problem's constant
-import static Main.Simulator.NSTUDENTS;
+//Import bar statistics
+import SharedRegions.QueueingDelays;
+//Import table statistics
+import SharedRegions.TableContention;
+//Import the timing wheel
+import CommonInfra.TimingWheel;
+
+import java.util.SplittableRandom;
 
 
 
 /**
  * Restaurant's main program.
+ * The dinner's parameters are read by {@link RestaurantConfig#load(String[])},
+ * e.g. <code>java Main.RestaurantMain students=1000 courses=12</code>.
+ * With <code>dinners=N</code>, N independent restaurants run in parallel, the
+ * log of restaurant i being written to RestaurantLog-i.
+ * With <code>engine=EVENTS</code>, the dinners are simulated one after the 
+ * other, in virtual time, by a {@link DinnerSimulation}.
+ * With <code>clock=SCALED</code> or <code>clock=ZERO</code>, walking and 
+ * eating take less time, or none, than with the real clock.
+ * The random walking and eating times are drawn from a stream of each 
+ * student, split from the master seed given by <code>seed=S</code> (or drawn
+ * for the run, and printed at the end), so that a run can be reproduced.
+ * With <code>timer.wheel=true</code>, the entities of every dinner sleep on
+ * a shared {@link TimingWheel}, whose drift is reported at the end.
  * @author Daniel Nunes and Rafael Direito
  */
 public class RestaurantMain {
     
     public static void main(String[] args) 
     {
-        //Define entities.        
-        Student [] student;
-        Waiter waiter ;
-        Chef chef ;
-        
-        //Create shared regions.
-        SharedRepo repo = new SharedRepo();
-        SharedBar bar = new SharedBar(repo);
-        SharedTable  tab = new SharedTable(repo, bar);
-        SharedKitchen kit = new SharedKitchen(repo, bar);
-        
-        //Write log's file header.
-        repo.writeHeader("RestaurantLog.txt");
-        
-        
-        //Instanciate entities.
-        waiter =  new Waiter(bar, tab, kit);
-        chef = new Chef(bar, kit);
-        student = new Student[NSTUDENTS];
-        for (int i = 0; i < NSTUDENTS; i++)
-            student[i] = new Student(bar, tab, i);
-        
+        //Read dinner's parameters.
+        RestaurantConfig config = null;
+        try
+        {
+            config = RestaurantConfig.load(args);
+        }
+        catch (IllegalArgumentException e)
+        {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+        int nDinners = config.getNDinners();
+        if(config.getThreads() == ThreadMode.VIRTUAL && !Restaurant.hasVirtualThreads())
+            System.err.println("Virtual threads are not available in this JVM, "
+                    + "the entities run on platform threads.");
+        String ext = config.getLogFormat() == LogFormat.JOURNAL ? ".jnl" : ".txt";
         
-        //Start entities.
-        for (int t = 0; t < NSTUDENTS ; t++)
+        if(config.getEngine() == Engine.EVENTS)
         {
-            student[t].start();
-            System.out.println("\u001B[32m Student S" + t + " is starting.");
+            simulate(config, ext);
+            return;
         }
-        waiter.start();
-        System.out.println("\033[1;32m Waiter is starting.");
-        chef.start();
-        System.out.println("\033[1;32m Chef is starting.");
         
+        //Create the restaurants; entities are only reported for a single dinner.
+        //Each dinner has its own random stream, split from the master seed.
+        //The entities of every dinner may sleep on the same timing wheel.
+        SplittableRandom seeds = new SplittableRandom(config.getSeed());
+        TimingWheel wheel = config.isTimerWheel() 
+                ? new TimingWheel(config.getTimerTickMicros() * 1000L, 
+                        config.getTimerWheelSize())
+                : null;
+        Restaurant[] restaurant = new Restaurant[nDinners];
+        for (int d = 0; d < nDinners; d++)
+            restaurant[d] = new Restaurant(config, 
+                    nDinners == 1 ? "RestaurantLog" + ext : "RestaurantLog-" + d + ext,
+                    nDinners == 1, seeds.split(), wheel);
+        
+        //Start the dinners.
+        long begin = System.nanoTime();
+        for (Restaurant r : restaurant)
+            r.start();
         
-        //End entities.
-        for (int t = 0; t < NSTUDENTS; t++)
+        //Wait for the end of the dinners.
+        for (Restaurant r : restaurant)
         {
             try
             {
-                student[t].join ();
+                r.join();
             }
             catch (InterruptedException e)
             {
-                System.err.println("Couldn't end students!");
+                System.err.println("Couldn't end the dinner of " + r.getLogName() + "!");
                 System.exit(1);
             }
-            System.out.println("\u001B[31m Student S" + t + " has ended.");
         }
         
-         try
+        if(nDinners > 1)
+            System.out.printf("%d dinners in %.1f ms%n", nDinners, 
+                    (System.nanoTime() - begin) / 1e6);
+        
+        //Report the duration of the dinners, in wall and in simulated time.
+        long wall = 0, maxWall = 0, sim = 0, maxSim = 0;
+        for (Restaurant r : restaurant)
         {
-            chef.join ();
-            System.out.println("\u001B[31m Chef has ended.");
+            wall += r.getWallNanos();
+            maxWall = Math.max(maxWall, r.getWallNanos());
+            sim += r.getSimNanos();
+            maxSim = Math.max(maxSim, r.getSimNanos());
         }
-        catch (InterruptedException e)
+        System.out.printf("\u001B[0m Wall dinner time: mean %.1f ms, max %.1f ms%n",
+                wall / 1e6 / nDinners, maxWall / 1e6);
+        System.out.printf(" Simulated dinner time (%s clock): mean %.1f ms, max %.1f ms%n",
+                config.getClock(), sim / 1e6 / nDinners, maxSim / 1e6);
+        System.out.println(" Seed: " + config.getSeed());
+        
+        //Report how late the timing wheel woke up the entities.
+        if(wheel != null)
         {
-            System.err.println("Couldn't end chef!");
-            System.exit(1);        
+            wheel.stop();
+            System.out.printf(" Timer drift (wheel, %d us tick): %d timeouts, "
+                    + "mean %.1f us, max %.1f us%n", config.getTimerTickMicros(),
+                    wheel.getExpired(), wheel.getMeanDriftNanos() / 1e3,
+                    wheel.getMaxDriftNanos() / 1e3);
         }
-         
-        try
+        
+        //Report the time the requests waited at the bar, in every dinner.
+        QueueingDelays delays = new QueueingDelays();
+        for (Restaurant r : restaurant)
+            delays.merge(r.getQueueingDelays());
+        System.out.println("\u001B[0m Queueing delay at the bar (" + config.getBarPolicy() + "):");
+        System.out.print(delays);
+        
+        //Report the contention on the table's locks, in every dinner.
+        TableContention contention = new TableContention();
+        for (Restaurant r : restaurant)
+            contention.merge(r.getTableContention());
+        System.out.println("\u001B[0m Contention on the table's locks (" 
+                + (config.isTableStriped() ? "striped" : "single lock") + "):");
+        System.out.print(contention);
+    }
+    
+    
+    /**
+     * Runs the dinners as discrete event simulations and reports their 
+     * duration, in virtual and in wall time, and the virtual time the 
+     * requests waited at the bar.
+     * @param config dinner's parameters
+     * @param ext extension of the log's files
+     */
+    private static void simulate(RestaurantConfig config, String ext)
+    {
+        int nDinners = config.getNDinners();
+        long begin = System.nanoTime();
+        long total = 0, max = 0, events = 0;
+        SplittableRandom seeds = new SplittableRandom(config.getSeed());
+        QueueingDelays delays = new QueueingDelays();
+        
+        for (int d = 0; d < nDinners; d++)
         {
-            waiter.join ();
-            System.out.println("\u001B[31m Waiter has ended.");
+            //The log is stamped with the calendar's virtual time.
+            EventCalendar cal = new EventCalendar();
+            SharedRepo repo = new SharedRepo(config, new VirtualClock(cal));
+            repo.writeHeader(nDinners == 1 ? "RestaurantLog" + ext : "RestaurantLog-" + d + ext);
+            DinnerSimulation sim = new DinnerSimulation(config, repo, cal, seeds.split());
+            long duration = sim.run();
+            repo.closeLog();
+            
+            total += duration;
+            max = Math.max(max, duration);
+            events += sim.getEvents();
+            delays.merge(sim.getQueueingDelays());
         }
-        catch (InterruptedException e)
-        {
-            System.err.println("Couldn't end waiter!");
-            System.exit(1);   
-        }        
-    }   
+        
+        System.out.printf("%d dinners simulated in %.1f ms (%d events)%n", nDinners,
+                (System.nanoTime() - begin) / 1e6, events);
+        System.out.printf("Simulated dinner time: mean %.1f ms, max %.1f ms%n",
+                total / 1e6 / nDinners, max / 1e6);
+        System.out.println("Seed: " + config.getSeed());
+        
+        //Report the virtual time the requests waited at the bar, in every dinner.
+        System.out.println("\u001B[0m Queueing delay at the bar (" + config.getBarPolicy() + "):");
+        System.out.print(delays);
+    }
 }
@@ -18,9 +18,13 @@
 
 package Main;
 
+//Import log flush policies
+import CommonInfra.LogWriter.FlushPolicy;
+
 /**
  * Class containing the problem's constants: (Number of students, number of 
- * courses, ...).
+ * courses, ...). The values that can be changed at run time are the defaults
+ * of {@link RestaurantConfig}.
  * @author Daniel Nunes and Rafael Direito
  */
 public class Simulator 
@@ -35,23 +39,257 @@ public class Simulator
      */
     public final static int NSTUDENTS = 7;
     
+    /**
+     * Number of chefs sharing the kitchen.
+     */
+    public final static int NCHEFS = 1;
+    
+    /**
+     * Number of portions the kitchen's pass can hold.
+     */
+    public final static int PASS_SIZE = 4;
+    
+    /**
+     * Number of portions a waiter carries from the kitchen in each trip.
+     */
+    public final static int TRAY_SIZE = 3;
+    
+    /**
+     * Number of waiters serving at the bar.
+     */
+    public final static int NWAITERS = 1;
+    
+    /**
+     * Number of dinners run in parallel, each one in its own restaurant.
+     */
+    public final static int NDINNERS = 1;
+    
     /**
      * Arrival order of the first student arriving at the restaurant.
      */
     public final static int FIRST = 0 ;
     
     /**
-     * Arrival order of the last student arriving at the restaurant.
+     * If <code>true</code>, the chef / waiter hand-off semaphores spin briefly
+     * before parking.
+     */
+    public final static boolean ADAPTIVE_HANDOFF = true;
+    
+    /**
+     * When the log lines are written to the file.
+     */
+    public final static FlushPolicy LOG_FLUSH_POLICY = FlushPolicy.EVERY_N_LINES;
+    
+    /**
+     * Number of log lines between flushes, for {@link FlushPolicy#EVERY_N_LINES}.
+     */
+    public final static int LOG_FLUSH_LINES = 64;
+    
+    /**
+     * Milliseconds between flushes, for {@link FlushPolicy#EVERY_T_MS}.
+     */
+    public final static long LOG_FLUSH_MILLIS = 100;
+    
+    /**
+     * If <code>true</code>, the entities publish their state changes into a
+     * ring and a dedicated thread writes the log.
+     */
+    public final static boolean ASYNC_LOG = true;
+    
+    /**
+     * Number of events the log ring can hold.
+     */
+    public final static int LOG_RING_SIZE = 1024;
+    
+    /**
+     * What an entity does when the log ring is full.
+     */
+    public final static Backpressure LOG_BACKPRESSURE = Backpressure.BLOCK;
+    
+    /**
+     * Format of the log.
+     */
+    public final static LogFormat LOG_FORMAT = LogFormat.TEXT;
+    
+    /**
+     * Order in which the waiters serve the requests at the bar.
+     */
+    public final static BarPolicy BAR_POLICY = BarPolicy.FIFO;
+    
+    /**
+     * If <code>true</code>, a waiter salutes every student that has arrived
+     * in a single trip.
+     */
+    public final static boolean BATCH_SALUTE = false;
+    
+    /**
+     * Waiting time that raises a request by one priority level, for 
+     * {@link BarPolicy#AGING}.
+     */
+    public final static long BAR_AGING_MILLIS = 10;
+    
+    /**
+     * If <code>true</code>, each phase of the dinner at the table has its own
+     * lock; otherwise the whole table is guarded by a single one.
+     */
+    public final static boolean TABLE_STRIPED = true;
+    
+    /**
+     * Maximum number of students counted by each node of the combining tree
+     * of the end of course barrier.
+     */
+    public final static int BARRIER_FAN_IN = 16;
+    
+    /**
+     * Kind of threads running the entities.
+     */
+    public final static ThreadMode THREADS = ThreadMode.PLATFORM;
+    
+    /**
+     * Engine running the dinners.
+     */
+    public final static Engine ENGINE = Engine.THREADS;
+    
+    /**
+     * Clock the entities sleep through.
+     */
+    public final static ClockMode CLOCK = ClockMode.REAL;
+    
+    /**
+     * Number of times a {@link ClockMode#SCALED SCALED} clock runs faster 
+     * than real time.
+     */
+    public final static int CLOCK_SCALE = 1000;
+    
+    /**
+     * If <code>true</code>, each states line of the text log ends with the
+     * wall and the simulated time of its event.
+     */
+    public final static boolean LOG_TIMES = false;
+    
+    /**
+     * Master seed of the random walking and eating times; zero draws a new
+     * one for every run.
+     */
+    public final static long SEED = 0;
+    
+    /**
+     * If <code>true</code>, the entities sleep on a timing wheel shared by 
+     * every dinner, instead of on a timer of each thread.
+     */
+    public final static boolean TIMER_WHEEL = false;
+    
+    /**
+     * Tick of the timing wheel, in microseconds.
+     */
+    public final static int TIMER_TICK_MICROS = 100;
+    
+    /**
+     * Number of slots of the timing wheel.
+     */
+    public final static int TIMER_WHEEL_SIZE = 512;
+    
+    /**
+     * Kinds of threads running the entities.
+     */
+    public enum ThreadMode
+    {
+        /**
+         * One operating system thread per entity.
+         */
+        PLATFORM,
+        /**
+         * One virtual thread per entity, if the JVM has them (Java 21 or 
+         * later); otherwise platform threads are used.
+         */
+        VIRTUAL
+    }
+    
+    /**
+     * Engines running the dinners.
+     */
+    public enum Engine
+    {
+        /**
+         * One thread per entity, in real time.
+         */
+        THREADS,
+        /**
+         * Discrete event simulation, on a single thread and in virtual time;
+         * the dinners run one after the other.
+         */
+        EVENTS
+    }
+    
+    /**
+     * Clocks the entities sleep through.
+     */
+    public enum ClockMode
+    {
+        /**
+         * Walking and eating take the time they are meant to.
+         */
+        REAL,
+        /**
+         * Walking and eating take {@link Simulator#CLOCK_SCALE CLOCK_SCALE} 
+         * times less time.
+         */
+        SCALED,
+        /**
+         * Walking and eating take no time at all.
+         */
+        ZERO
+    }
+    
+    /**
+     * Log formats.
      */
-    public final static int LAST = NSTUDENTS -1;
+    public enum LogFormat
+    {
+        /**
+         * Fixed width text lines, one per state change (RestaurantLog.txt).
+         */
+        TEXT,
+        /**
+         * Binary journal with a fixed size record per state change
+         * (RestaurantLog.jnl), rendered to text by {@link JournalRenderer}.
+         */
+        JOURNAL
+    }
     
     /**
-     * ID of the first student arriving.
+     * Scheduling policies of the requests at the bar.
      */
-    public static  int FIRST_ID;
+    public enum BarPolicy
+    {
+        /**
+         * By order of arrival.
+         */
+        FIFO,
+        /**
+         * By strict priority: portion collection, bill, order, salute and 
+         * goodbye.
+         */
+        PRIORITY,
+        /**
+         * By priority, raised with the time the request has been waiting.
+         */
+        AGING
+    }
     
     /**
-     * ID of the last student arriving.
+     * Backpressure policies of the asynchronous log.
      */
-    public static  int LAST_ID;
+    public enum Backpressure
+    {
+        /**
+         * The entity waits until there is room in the ring.
+         */
+        BLOCK,
+        /**
+         * The event is dropped and counted, and its line is missing from the
+         * log (the states shown by the following lines are then not exact).
+         */
+        DROP
+    }
 }
@@ -0,0 +1,70 @@
+/*
+ * The problem:
+ * "Events portray activities that take place when a group of students, enrolled in
+ * Computação Distribuída, go to a famous restaurant downtown for a gourmet dinner 
+ * to celebrate the beginning of the second semester. There are three main locations
+ * within the restaurant that should be accounted for: the table where the students 
+ * sit to have their meal, the kitchen where the chef prepares it according to the
+ * orders placed by the students, and the bar where the waiter stands waiting for 
+ * service requests. There are, furthermore, three kinds of interacting entities: 
+ * N students , one waiter and one chef."
+ * 
+ * The main goal of this project is to design and implement a solution to the 
+ * problem given above.
+ * 
+ * This project was developed during the course of Distributed Computing, at the 
+ * University of Aveiro, under the supervision of Prof. António Rui Borges.
+ */
+
+package SharedRegions;
+
+import java.util.ArrayDeque;
+
+
+/**
+ * Requests served by priority of their kind, as in 
+ * {@link PriorityRequestQueue}, raised by one level for each aging period 
+ * they have been waiting, so that low priority requests are not starved by
+ * a burst of higher priority ones. Ties go to the higher priority kind.
+ * @author Daniel Nunes and Rafael Direito
+ */
+public class AgingRequestQueue extends PriorityRequestQueue 
+{
+    /**
+     * Waiting time that raises a request by one level, in nanoseconds.
+     */
+    private final long agingNanos;
+    
+    
+    /**
+     * Queue instantiation.
+     * @param agingMillis waiting time that raises a request by one level, in
+     * milliseconds (at least one)
+     */
+    public AgingRequestQueue(long agingMillis)
+    {
+        agingNanos = Math.max(agingMillis, 1) * 1000000L;
+    }
+    
+    
+    @Override
+    public Request poll(long now)
+    {
+        //Only the oldest request of each kind can be the next one.
+        int best = -1;
+        long bestScore = Long.MIN_VALUE;
+        for (int i = 0; i < queue.length; i++)
+        {
+            Request head = queue[i].peekFirst();
+            if(head == null)
+                continue;
+            long score = (now - head.getEnqueued()) / agingNanos - i;
+            if(score > bestScore)
+            {
+                best = i;
+                bestScore = score;
+            }
+        }
+        return best < 0 ? null : queue[best].pollFirst();
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * The problem:
+ * "Events portray activities that take place when a group of students, enrolled in
+ * Computação Distribuída, go to a famous restaurant downtown for a gourmet dinner 
+ * to celebrate the beginning of the second semester. There are three main locations
+ * within the restaurant that should be accounted for: the table where the students 
+ * sit to have their meal, the kitchen where the chef prepares it according to the
+ * orders placed by the students, and the bar where the waiter stands waiting for 
+ * service requests. There are, furthermore, three kinds of interacting entities: 
+ * N students , one waiter and one chef."
+ * 
+ * The main goal of this project is to design and implement a solution to the 
+ * problem given above.
+ * 
+ * This project was developed during the course of Distributed Computing, at the 
+ * University of Aveiro, under the supervision of Prof. António Rui Borges.
+ */
+
+package SharedRegions;
+
+import java.util.ArrayDeque;
+
+
+/**
+ * Requests served by strict priority of their kind: portion collection, bill,
+ * order, salute and goodbye. Requests of the same kind are served by order of
+ * arrival.
+ * @author Daniel Nunes and Rafael Direito
+ */
+public class PriorityRequestQueue extends RequestQueue 
+{
+    /**
+     * Kinds of requests, from the highest to the lowest priority.
+     */
+    protected static final Request.Type[] PRIORITY = {
+        Request.Type.COLLECT, Request.Type.BILL, Request.Type.ORDER,
+        Request.Type.SALUTE, Request.Type.GOODBYE, Request.Type.END
+    };
+    
+    
+    /**
+     * Queued requests, by priority level (index of the kind in 
+     * {@link #PRIORITY}).
+     */
+    protected final ArrayDeque<Request>[] queue;
+    
+    
+    /**
+     * Priority level of each kind of request, by ordinal.
+     */
+    private final int[] level;
+    
+    
+    /**
+     * Queue instantiation.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public PriorityRequestQueue()
+    {
+        queue = new ArrayDeque[PRIORITY.length];
+        level = new int[Request.Type.values().length];
+        for (int i = 0; i < PRIORITY.length; i++)
+        {
+            queue[i] = new ArrayDeque<>();
+            level[PRIORITY[i].ordinal()] = i;
+        }
+    }
+    
+    
+    @Override
+    public void add(Request req)
+    {
+        queue[level[req.getType().ordinal()]].addLast(req);
+    }
+    
+    
+    @Override
+    public Request poll(long now)
+    {
+        for (ArrayDeque<Request> q : queue)
+            if(!q.isEmpty())
+                return q.pollFirst();
+        return null;
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * The problem:
+ * "Events portray activities that take place when a group of students, enrolled in
+ * Computação Distribuída, go to a famous restaurant downtown for a gourmet dinner 
+ * to celebrate the beginning of the second semester. There are three main locations
+ * within the restaurant that should be accounted for: the table where the students 
+ * sit to have their meal, the kitchen where the chef prepares it according to the
+ * orders placed by the students, and the bar where the waiter stands waiting for 
+ * service requests. There are, furthermore, three kinds of interacting entities: 
+ * N students , one waiter and one chef."
+ * 
+ * The main goal of this project is to design and implement a solution to the 
+ * problem given above.
+ * 
+ * This project was developed during the course of Distributed Computing, at the 
+ * University of Aveiro, under the supervision of Prof. António Rui Borges.
+ */
+
+package SharedRegions;
+
+
+/**
+ * Time the requests of each kind waited at the bar for a waiter.
+ * It is not thread safe, the caller must guarantee mutual exclusion.
+ * @author Daniel Nunes and Rafael Direito
+ */
+public class QueueingDelays 
+{
+    /**
+     * Number of requests, total and longest wait, by kind of request.
+     */
+    private final long[] count, total, max;
+    
+    
+    /**
+     * Empty statistics.
+     */
+    public QueueingDelays()
+    {
+        int n = Request.Type.values().length;
+        count = new long[n];
+        total = new long[n];
+        max = new long[n];
+    }
+    
+    
+    /**
+     * Copy of other statistics.
+     * @param other statistics to be copied
+     */
+    public QueueingDelays(QueueingDelays other)
+    {
+        this();
+        merge(other);
+    }
+    
+    
+    /**
+     * Accounts the wait of a request.
+     * @param type kind of request
+     * @param nanos waiting time, in nanoseconds
+     */
+    public void record(Request.Type type, long nanos)
+    {
+        int t = type.ordinal();
+        count[t]++;
+        total[t] += nanos;
+        if(nanos > max[t])
+            max[t] = nanos;
+    }
+    
+    
+    /**
+     * Adds the waits accounted by other statistics to these ones.
+     * @param other statistics to be added
+     */
+    public void merge(QueueingDelays other)
+    {
+        for (int t = 0; t < count.length; t++)
+        {
+            count[t] += other.count[t];
+            total[t] += other.total[t];
+            max[t] = Math.max(max[t], other.max[t]);
+        }
+    }
+    
+    
+    /**
+     * @param type kind of request
+     * @return Number of requests of the kind.
+     */
+    public long getCount(Request.Type type) { return count[type.ordinal()]; }
+    
+    
+    /**
+     * @param type kind of request
+     * @return Mean wait of the requests of the kind, in nanoseconds.
+     */
+    public long getMeanNanos(Request.Type type) 
+    { 
+        int t = type.ordinal();
+        return count[t] == 0 ? 0 : total[t] / count[t];
+    }
+    
+    
+    /**
+     * @param type kind of request
+     * @return Longest wait of the requests of the kind, in nanoseconds.
+     */
+    public long getMaxNanos(Request.Type type) { return max[type.ordinal()]; }
+    
+    
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder();
+        for (Request.Type type : Request.Type.values())
+            if(getCount(type) > 0)
+                sb.append(String.format("%-8s n=%-8d mean=%10.1f us  max=%10.1f us%n", 
+                        type, getCount(type), getMeanNanos(type) / 1e3, 
+                        getMaxNanos(type) / 1e3));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * The problem:
+ * "Events portray activities that take place when a group of students, enrolled in
+ * Computação Distribuída, go to a famous restaurant downtown for a gourmet dinner 
+ * to celebrate the beginning of the second semester. There are three main locations
+ * within the restaurant that should be accounted for: the table where the students 
+ * sit to have their meal, the kitchen where the chef prepares it according to the
+ * orders placed by the students, and the bar where the waiter stands waiting for 
+ * service requests. There are, furthermore, three kinds of interacting entities: 
+ * N students , one waiter and one chef."
+ * 
+ * The main goal of this project is to design and implement a solution to the 
+ * problem given above.
+ * 
+ * This project was developed during the course of Distributed Computing, at the 
+ * University of Aveiro, under the supervision of Prof. António Rui Borges.
+ */
+
+package SharedRegions;
+
+
+/**
+ * Service request left at the bar, for any of the waiters to serve.
+ * @author Daniel Nunes and Rafael Direito
+ */
+public class Request 
+{
+    /**
+     * Kinds of service requests.
+     */
+    public enum Type
+    {
+        /**
+         * A student has arrived and waits to be saluted.
+         */
+        SALUTE,
+        /**
+         * Every student has chosen, the first to arrive has the order.
+         */
+        ORDER,
+        /**
+         * The chef has the portions of a course ready to be collected.
+         */
+        COLLECT,
+        /**
+         * The last course has been eaten, the bill has to be presented.
+         */
+        BILL,
+        /**
+         * A student is leaving the restaurant.
+         */
+        GOODBYE,
+        /**
+         * Every student has left, the waiter ends his life cycle.
+         */
+        END
+    }
+    
+    
+    /**
+     * Kind of request.
+     */
+    private final Type type;
+    
+    
+    /**
+     * ID of the student that made the request, or the course to be collected
+     * for {@link Type#COLLECT}.
+     */
+    private final int id;
+    
+    
+    /**
+     * Time the request was made (<code>System.nanoTime()</code>).
+     */
+    private final long enqueued;
+    
+    
+    /**
+     * Request instantiation, at the time it is made.
+     * @param type kind of request
+     * @param id ID of the student that made the request, or the course to be 
+     * collected for {@link Type#COLLECT}
+     */
+    public Request(Type type, int id)
+    {
+        this(type, id, System.nanoTime());
+    }
+    
+    
+    /**
+     * Request instantiation, at a given time.
+     * @param type kind of request
+     * @param id ID of the student that made the request, or the course to be 
+     * collected for {@link Type#COLLECT}
+     * @param enqueued time the request is made, in nanoseconds, on the same 
+     * time base as the one the queue is polled with
+     */
+    public Request(Type type, int id, long enqueued)
+    {
+        this.type = type;
+        this.id = id;
+        this.enqueued = enqueued;
+    }
+    
+    
+    /**
+     * @return Kind of request.
+     */
+    public Type getType() { return type; }
+    
+    
+    /**
+     * @return ID of the student that made the request, or the course to be 
+     * collected for {@link Type#COLLECT}.
+     */
+    public int getId() { return id; }
+    
+    
+    /**
+     * @return Time the request was made (<code>System.nanoTime()</code>).
+     */
+    public long getEnqueued() { return enqueued; }
+    
+    
+    @Override
+    public String toString()
+    {
+        return type + "(" + id + ")";
+    }
+}
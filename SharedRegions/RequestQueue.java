@@ -0,0 +1,67 @@
+/*
+ * The problem:
+ * "Events portray activities that take place when a group of students, enrolled in
+ * Computação Distribuída, go to a famous restaurant downtown for a gourmet dinner 
+ * to celebrate the beginning of the second semester. There are three main locations
+ * within the restaurant that should be accounted for: the table where the students 
+ * sit to have their meal, the kitchen where the chef prepares it according to the
+ * orders placed by the students, and the bar where the waiter stands waiting for 
+ * service requests. There are, furthermore, three kinds of interacting entities: 
+ * N students , one waiter and one chef."
+ * 
+ * The main goal of this project is to design and implement a solution to the 
+ * problem given above.
+ * 
+ * This project was developed during the course of Distributed Computing, at the 
+ * University of Aveiro, under the supervision of Prof. António Rui Borges.
+ */
+
+package SharedRegions;
+
+//Import the scheduling policies
+import Main.Simulator.BarPolicy;
+
+/**
+ * Queue of the requests waiting at the bar. The order in which the requests 
+ * are served is given by the scheduling policy of each implementation.
+ * It is not thread safe, the caller must guarantee mutual exclusion.
+ * @author Daniel Nunes and Rafael Direito
+ */
+public abstract class RequestQueue 
+{
+    /**
+     * Builds the queue of a scheduling policy, the same for the restaurant's
+     * bar and for the simulated one.
+     * @param policy scheduling policy
+     * @param agingMillis waiting time that raises a request by one priority 
+     * level, in milliseconds, for {@link BarPolicy#AGING}
+     * @return Empty queue.
+     */
+    public static RequestQueue forPolicy(BarPolicy policy, long agingMillis)
+    {
+        switch(policy)
+        {
+            case PRIORITY:
+                return new PriorityRequestQueue();
+            case AGING:
+                return new AgingRequestQueue(agingMillis);
+            default:
+                return new FifoRequestQueue();
+        }
+    }
+    
+    
+    /**
+     * Queues a request.
+     * @param req request
+     */
+    public abstract void add(Request req);
+    
+    
+    /**
+     * Removes the next request to be served.
+     * @param now current time (<code>System.nanoTime()</code>)
+     * @return Next request, or <code>null</code> if the queue is empty.
+     */
+    public abstract Request poll(long now);
+}
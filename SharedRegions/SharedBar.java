@@ -23,13 +23,18 @@ import CommonInfra.Semaphore;
 //Import entities states
 import Entities.States.WaiterStates;
 //Import entities
+import Entities.Student;
 import Entities.Waiter;
-//Import problem's constants
-import static Main.Simulator.NSTUDENTS;
+//Import problem's parameters
+import Main.RestaurantConfig;
 
 
 /**
  * Restaurant's shared bar zone.
+ * Every service request is queued here, with its kind and the student that
+ * made it, and is served by the first waiter available, in the order given 
+ * by the scheduling policy of the dinner. The time each request waits for a
+ * waiter is accounted by kind of request.
  * @author Daniel Nunes and Rafael Direito
  */
 public class SharedBar {
@@ -42,24 +47,22 @@ public class SharedBar {
     
     
     /**
-     * Synchronization point of the waiter while he's waiting for a request from 
-     * a client or the chef.
+     * Synchronization point of the waiters while they're waiting for a request 
+     * from a client or the chef. It counts the requests in the queue.
      */
     private Semaphore waiterBusy;
     
     
     /**
-     * The waiter blocks here while the students are eating, waiting for 
-     * the last student eating each course or the student that will pay the bill
-     * to unlock him.
+     * Requests waiting for a waiter.
      */
-    private Semaphore waitingClientsSignal;
+    private RequestQueue requests;
     
     
     /**
-     * Char that indicates what operation is being executed by the waiter.
+     * Time the requests waited for a waiter.
      */
-    private char op;
+    private QueueingDelays delays;
     
     
     /**
@@ -68,37 +71,66 @@ public class SharedBar {
     private SharedRepo repo;
     
     
+    /**
+     * Number of students attending at the dinner.
+     */
+    private final int nStudents;
+    
+    
+    /**
+     * Number of waiters serving the requests.
+     */
+    private final int nWaiters;
+    
+    
     /**
      * Number of students that left the restaurant. 
      */
     private  int numStudentsLeft;
-       
+    
+    
+    /**
+     * Number of courses the chef has started to dish.
+     */
+    private int coursesReady;
+    
+    
+    /**
+     * Number of courses every student has eaten.
+     */
+    private int coursesEaten;
+    
     
     /**
-     * <code>True</code> if waiter has to wait for the students to eat, so that
-     * he can move on.
+     * Number of courses whose collection has been requested.
      */
-    private boolean waitStudentsFinishCourse;
+    private int coursesRequested;
     
     
     /**
      * Constructor of the restaurant's shared bar zone.
      * @param repo Restaurant's shared repository zone.
+     * @param config Dinner's parameters.
      */
-    public SharedBar(SharedRepo repo)
+    public SharedBar(SharedRepo repo, RestaurantConfig config)
     {
+        nStudents = config.getNStudents();
+        nWaiters = config.getNWaiters();
         
         //Initializate restaurant's shared repository zone.
         this.repo=repo;
         
         //Initializate global variables.
         numStudentsLeft=0;
-        waitStudentsFinishCourse=false;
+        coursesReady = coursesEaten = coursesRequested = 0;
+        
+        //Initializate the requests' queue, according to the scheduling policy.
+        requests = RequestQueue.forPolicy(config.getBarPolicy(), config.getBarAgingMillis());
+        delays = new QueueingDelays();
         
         //Initializate semaphores.
         mutex = new Semaphore();
         waiterBusy = new Semaphore();
-        waitingClientsSignal = new Semaphore();
         
         //Allow entrance in critical region. 
         mutex.up();
@@ -106,20 +138,27 @@ public class SharedBar {
     
     
     /**
-     * Method that keeps waiter busy waiting for a request.
-     * @return Char that indicates what operation is being executed by the 
-     * waiter.
+     * Method that keeps a waiter busy waiting for a request.
+     * @return Next request to be served.
      */
-    public char lookAround()
+    public Request lookAround()
     {
         //Waiter blocks waiting for a request.
         waiterBusy.down();
         
-        //Check if the waiter has to wait for all the students to eat.
-        if(waitStudentsFinishCourse)
-            waitingClientsSignal.down();
-
-        return op;
+        //Enters in critical region.
+        mutex.down();
+        
+        //Take the next request and account its wait.
+        long now = System.nanoTime();
+        Request req = requests.poll(now);
+        if(req.getType() != Request.Type.END)
+            delays.record(req.getType(), now - req.getEnqueued());
+        
+        //Leaves critical region.
+        mutex.up();
+        
+        return req;
     }
     
     
@@ -131,8 +170,8 @@ public class SharedBar {
         //Enters in critical region.
         mutex.down();
         
-        //Get current thread.
-        Waiter w = ( (Waiter) Thread.currentThread());
+        //Get current entity.
+        Waiter w = Waiter.current();
         
         //Update waiter states to appraising situation.
         w.setWaiterState(WaiterStates.APPSIT);
@@ -152,11 +191,8 @@ public class SharedBar {
         //Enters in critical region.
         mutex.down();
         
-        //Change operation to N.
-        op = 'N';
-        
-        //Releases the waiter because a student has arrived.
-        waiterBusy.up();
+        //Request to be saluted.
+        request(Request.Type.SALUTE, Student.current().getStudentID());
         
         //Leaves critical region.
         mutex.up();  
@@ -172,11 +208,8 @@ public class SharedBar {
         //Enters in critical region.
         mutex.down();
         
-        //Change operation to O.
-        op = 'O';
-        
-        //Releases the waiter because all students have chosen their meal.
-        waiterBusy.up();
+        //Request the order to be taken.
+        request(Request.Type.ORDER, Student.current().getStudentID());
         
         //Leaves critical region.
         mutex.up();  
@@ -186,17 +219,17 @@ public class SharedBar {
     /**
      * Called by the chef, from the kitchen, this method informs that the waiter 
      * can pick up the portions from the kitchen and deliver them to the students.
+     * The collection is only requested once the students have eaten the 
+     * previous course.
      */
      public void alertTheWaiter()
     {
         //Enter critical region
         mutex.down();
 
-        //Change operation to C.
-        op = 'C';
-        
-        //Releases the waiter because all students have chosen their meal.
-        waiterBusy.up(); 
+        //One more course is being dished.
+        coursesReady++;
+        requestCollection();
         
         //Leave critical region
         mutex.up();
@@ -212,18 +245,8 @@ public class SharedBar {
         //Enters in critical region.
         mutex.down();
         
-        //Change operation to P.
-        op = 'P';
-        
-        //Releases the waiter because all the courses have been eaten.
-        waiterBusy.up();
-        
-        //Unlock the waiter, so he can go on.
-        waitingClientsSignal.up();
-        
-        //The students already ate, so the waiter doesn't have to wait 
-        //for their signal.
-        waitStudentsFinishCourse = false;
+        //Request the bill, all the courses have been eaten.
+        request(Request.Type.BILL, Student.current().getStudentID());
         
         //Leaves critical region.
         mutex.up();          
@@ -239,12 +262,8 @@ public class SharedBar {
         //Enters in critical region.
         mutex.down();
         
-        //Change operation to G.
-        op = 'G';
-        
-        //Releases the waiter because the students are leaving the restaurant
-        //and now he can say goodbye to each one. 
-        waiterBusy.up();
+        //Request a goodbye.
+        request(Request.Type.GOODBYE, Student.current().getStudentID());
         
         //Leaves critical region.
         mutex.up(); 
@@ -252,61 +271,40 @@ public class SharedBar {
      
      
      /**
-      * Sub operation of tab.exit() that is called when all students have left
+      * Sub operation of sayGoodbye() that is called when all students have left
       * the restaurant.
      */
-     public void allStudentsHaveLeft()
+     private void allStudentsHaveLeft()
     {
         //This method is invoqued by sayGoodBye(), which is already inside of
         //the critical region
         
-        //Change operation to E.
-        op = 'E';
-        
-        //Releases the waiter because all students have left the restaurant and
-        //now he can end his life cycle.
-        waiterBusy.up();
+        //Every waiter can now end his life cycle.
+        for (int i = 0; i < nWaiters; i++)
+            requests.add(new Request(Request.Type.END, -1));
+        waiterBusy.up(nWaiters);
     }     
      
     
     
      /**
-      * Invoked by the last student eating each course, so that the waiter can
-      * move on, collecting the portions from the chef.
+      * Invoked by the last student eating each course, so that a waiter can
+      * move on, collecting the portions of the next course from the chef.
       */
      public void signalTheWaiter()
      {
          //Enter critical regian
          mutex.down();
          
-         //Unlock waiter
-         waitingClientsSignal.up();
+         //The course has been eaten.
+         coursesEaten++;
+         requestCollection();
          
          //Leave critical regian
          mutex.up();
      }
      
      
-     /**
-      * Invoked by the waiter as soon as he serves all the clients. This method
-      * will change a flag, allowing the waiter to get blocked in the bar, until
-      * he is called by the last student eating each meal, or, if the we are at
-      * the last course, by the last student entering the restaurant.
-      */
-     public void waitForStudentToEat()
-     {        
-        //Enter critical region
-        mutex.down();
-        
-        //If flag is false, change it to true
-        if(!waitStudentsFinishCourse )
-            waitStudentsFinishCourse = true;
-        
-        //Leave critical region
-        mutex.up();
-     }
-     
-     
      /**
      * If all students have finished the last course, the waiter prepares the
      * bill.
@@ -316,8 +314,8 @@ public class SharedBar {
         //Enters in critical region.
         mutex.down();
         
-        //Get current thread.
-        Waiter w = ((Waiter) Thread.currentThread());
+        //Get current entity.
+        Waiter w = Waiter.current();
         
         ////Update waiter states to processing the bill.
         w.setWaiterState(WaiterStates.PROBIL);
@@ -340,10 +338,59 @@ public class SharedBar {
         numStudentsLeft++;
         
         //All students have left the restaurant.
-        if(numStudentsLeft == NSTUDENTS)
+        if(numStudentsLeft == nStudents)
             allStudentsHaveLeft();
         
         //Leaves critical region.
         mutex.up();
     }
+    
+    
+    /**
+     * Time the requests waited for a waiter, so far.
+     * @return Queueing delays by kind of request.
+     */
+    public QueueingDelays getQueueingDelays()
+    {
+        //Enters in critical region.
+        mutex.down();
+        
+        QueueingDelays copy = new QueueingDelays(delays);
+        
+        //Leaves critical region.
+        mutex.up();
+        
+        return copy;
+    }
+    
+    
+    /*
+     *  The methods below must be called inside the critical region.
+     */
+    
+    
+    /**
+     * Queues a request and releases a waiter.
+     * @param type kind of request
+     * @param id ID of the student that made the request, or the course
+     */
+    private void request(Request.Type type, int id)
+    {
+        requests.add(new Request(type, id));
+        waiterBusy.up();
+    }
+    
+    
+    /**
+     * Requests the collection of the next course, if the chef is dishing it 
+     * and the students have eaten the previous one.
+     */
+    private void requestCollection()
+    {
+        if(coursesRequested < coursesReady && coursesRequested <= coursesEaten)
+        {
+            coursesRequested++;
+            request(Request.Type.COLLECT, coursesRequested);
+        }
+    }
 }
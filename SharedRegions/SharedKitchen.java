@@ -20,6 +20,10 @@ package SharedRegions;
 
 //Import class semaphore
 import CommonInfra.Semaphore;
+//Import work-stealing deque
+import CommonInfra.WorkStealingIntDeque;
+//Import bounded FIFO
+import CommonInfra.BoundedIntFIFO;
 
 //Import entities states
 import Entities.States.WaiterStates;
@@ -29,12 +33,18 @@ import Entities.States.ChefStates;
 import Entities.Waiter;
 import Entities.Chef;
 
-//Import problem's constants
-import static Main.Simulator.NCOURSES;
-import static Main.Simulator.NSTUDENTS;
+//Import problem's parameters
+import Main.RestaurantConfig;
 
 /**
  * Restaurant's shared kitchen zone.
+ * The portions of each course are split among the chefs, each one keeping 
+ * his share in a deque of his own; a chef with nothing left steals portions
+ * from the others. The chef that delivers the last portion of a course 
+ * prepares the next one and calls the chefs that were left without work.
+ * The dished portions are left at the pass, a bounded buffer, where the 
+ * waiter collects them: a chef only waits for the waiter when the pass is 
+ * full.
  * @author Daniel Nunes and Rafael Direito
  */
 public class SharedKitchen {
@@ -54,42 +64,109 @@ public class SharedKitchen {
     
     
     /**
-     * Synchronization point of the chef while waits for an order.
+     * Synchronization point of the chefs while they wait for an order.
      */
     private Semaphore waitingOrder;
     
     
     /**
-     * Synchronization point of the chef that confirms that he has delivered a
-     * portion.
+     * Pass between the chefs and the waiter, holding the portions dished and
+     * not collected yet (each one identified by its course).
      */
-    private Semaphore portionDelivered;
+    private BoundedIntFIFO pass;
     
     
     /**
-     * Guarantees that the chef waits for the waiter's arrival.
+     * Waiter's tray, where the portions taken from the pass are placed.
      */
-    private Semaphore waitForWaiter;
+    private int[] tray;
     
     
     /**
-     * Number of portions delivered by the chef.
+     * Synchronization point of each chef left without portions to dish, 
+     * until the next course is prepared or the order is completed.
+     */
+    private Semaphore[] courseReady;
+    
+    
+    /**
+     * Portions of the current course still to be dished, by chef.
+     */
+    private WorkStealingIntDeque[] portions;
+    
+    
+    /**
+     * Last course whose portions each chef has taken into his deque.
+     */
+    private int[] coursesTaken;
+    
+    
+    /**
+     * <code>true</code> for the chefs blocked in {@link #courseReady}.
+     */
+    private boolean[] chefIdle;
+    
+    
+    /**
+     * Number of chefs that have closed the service.
+     */
+    private int chefsClosed;
+    
+    
+    /**
+     * Last course that has been prepared (zero before the order).
+     */
+    private int coursesPrepared;
+    
+    
+    /**
+     * <code>true</code> once every course has been delivered.
+     */
+    private boolean orderCompleted;
+    
+    
+    /**
+     * Number of portions delivered by the chefs.
      */
     private int numPortionsDelivered;
     
     
     /**
-     * Number of courses delivered by the chef.
+     * Number of portions of the current course collected by the waiter.
+     */
+    private int numPortionsCollected;
+    
+    
+    /**
+     * Number of courses delivered by the chefs.
      */
     private int numCoursesDelivered;
     
     
     /**
-     * Counts the number of portions produced by the chef, at each course.
+     * Counts the number of portions produced by the chefs, at each course.
      */
     private int numPortionsProducedByChef;
     
     
+    /**
+     * Number of students attending at the dinner.
+     */
+    private final int nStudents;
+    
+    
+    /**
+     * Number of courses.
+     */
+    private final int nCourses;
+    
+    
+    /**
+     * Number of chefs.
+     */
+    private final int nChefs;
+    
+    
     /**
      * Restaurant's shared repository zone.
      */
@@ -106,25 +183,48 @@ public class SharedKitchen {
      * Constructor of the restaurant's shared kitchen zone.
      * @param repo Restaurant's shared repository zone.
      * @param bar Restaurant's shared bar zone.
+     * @param config Dinner's parameters.
      */
-    public SharedKitchen ( SharedRepo repo, SharedBar bar)
+    public SharedKitchen ( SharedRepo repo, SharedBar bar, RestaurantConfig config)
     {
+        nStudents = config.getNStudents();
+        nCourses = config.getNCourses();
+        nChefs = config.getNChefs();
+        
         //Initializate restaurant's shared repository zone.
         this.repo = repo;
         this.bar = bar;
         
         //Initializate global variables.
         numPortionsDelivered = 0;
+        numPortionsCollected = 0;
         numCoursesDelivered = 0;
         numPortionsProducedByChef = 0;
+        coursesPrepared = 0;
+        orderCompleted = false;
+        chefsClosed = 0;
+        
+        //Initializate the chefs' deques, each one holds at most his share of
+        //a course.
+        portions = new WorkStealingIntDeque[nChefs];
+        coursesTaken = new int[nChefs];
+        chefIdle = new boolean[nChefs];
+        for (int i = 0; i < nChefs; i++)
+            portions[i] = new WorkStealingIntDeque(share(i));
         
         //Initializate semaphores.
         mutex = new Semaphore();
         waitingOrder = new Semaphore();
-        waitForChef = new Semaphore();
-        waitingOrder = new Semaphore();
-        portionDelivered = new Semaphore();
-        waitForWaiter = new Semaphore();
+        waitForChef = new Semaphore(false, config.isAdaptiveHandoff());
+        courseReady = new Semaphore[nChefs];
+        for (int i = 0; i < nChefs; i++)
+            courseReady[i] = new Semaphore();
+        
+        //Initializate the pass.
+        pass = new BoundedIntFIFO(config.getPassSize());
+        
+        //Initializate the tray.
+        tray = new int[config.getTraySize()];
         
         //Allow entrance in critical region. 
         mutex.up();
@@ -143,42 +243,47 @@ public class SharedKitchen {
     
     
     /**
-     * Waiter gives an order to the chef and waits for the confirmation.
+     * Waiter gives an order to the chefs and waits for the confirmation.
      */
     public void handNoteToTheChef()
     {
-        //Get current thread.
-        Waiter w = ( (Waiter) Thread.currentThread());
+        //Get current entity.
+        Waiter w = Waiter.current();
         
         //Update waiter's state to place the order.
         w.setWaiterState(WaiterStates.PLAORD);
         repo.updateWaiterState(WaiterStates.PLAORD);
         
-        //The waiter will unlock the chef who is blocked waiting for an order.
-        waitingOrder.up();
+        //The waiter will unlock the chefs who are blocked waiting for an order.
+        waitingOrder.up(nChefs);
         
-        //The waiter will block waiting for the confirmation given by chef.
+        //The waiter will block waiting for the confirmation given by a chef.
         waitForChef.down();
     }
         
         
     /**
-     * Chef starts the preparation of the order.
+     * Chef starts the preparation of the order. The first chef to get here
+     * confirms the order to the waiter and prepares the first course.
      */    
     public void startPreparation()
     {
         //Enters in critical region.
         mutex.down(); 
         
-        //Get current thread.
-        Chef c = ( (Chef) Thread.currentThread());
-        
-        //Chef confirms the order, waking up the waiter
-        waitForChef.up();
-        
-        //Update chef's state to preparing course
+        //Get current entity.
+        Chef c = Chef.current();
         c.setChefState(ChefStates.PREPCO);
-        repo.updateCourse(numCoursesDelivered + 1);
+        
+        if(coursesPrepared == 0)
+        {
+            //Chef confirms the order, waking up the waiter
+            waitForChef.up();
+
+            //Update chef's state to preparing course
+            coursesPrepared = 1;
+            repo.updateCourse(coursesPrepared);
+        }
         
         //Leaves critical region.
         mutex.up();
@@ -186,29 +291,82 @@ public class SharedKitchen {
     
     
     /**
-     * Chef starts to dish the portions.
+     * Chef takes the next portion to dish, from his deque or from another
+     * chef's. If there is none, he waits for the next course.
+     * @return <code>false</code> if the order has been completed.
      */
-    public void proceedToPresentation()
+    public boolean proceedToPresentation()
     {
+        //Get current entity.
+        Chef c = Chef.current();
+        int id = c.getChefID();
+        
+        for(;;)
+        {
+            //Enters in critical region.
+            mutex.down();
+            
+            if(orderCompleted)
+            {
+                mutex.up();
+                return false;
+            }
+            
+            //Take the share of a course that has just been prepared.
+            if(coursesTaken[id] < coursesPrepared)
+            {
+                coursesTaken[id] = coursesPrepared;
+                for (int p = 0; p < share(id); p++)
+                    portions[id].push(p);
+            }
+            
+            //Leaves critical region.
+            mutex.up();
+            
+            //Take a portion, without blocking the other chefs.
+            if(takePortion(id))
+                break;
+            
+            //Enters in critical region.
+            mutex.down();
+            
+            //Nothing left in this course: wait for the next one, unless it was
+            //prepared or the order completed meanwhile.
+            if(orderCompleted || coursesTaken[id] < coursesPrepared)
+            {
+                mutex.up();
+                continue;
+            }
+            chefIdle[id] = true;
+            
+            //Leaves critical region.
+            mutex.up();
+            
+            courseReady[id].down();
+        }
+        
         //Enters in critical region.
         mutex.down();
         
-        //Get current thread.
-        Chef c = (Chef) Thread.currentThread();
-        
         //Update chef's state to dishing portions.
-        c.setChefState(ChefStates.DISHPO);
-        repo.updateChefState(ChefStates.DISHPO);
+        if(c.getChefState() != ChefStates.DISHPO)
+        {
+            c.setChefState(ChefStates.DISHPO);
+            repo.updateChefState(ChefStates.DISHPO);
+        }
         
         //Leaves critical region.
         mutex.up();
+        
+        return true;
     }
     
     
     /**
-     * Check invokes this method when he wants the waiter to pick the portions
-     * up. This method invokes an alertTheWaiter() method inside the bar,
-     * signaling the waiter to come to the kitchen to collect the portions.
+     * Chef invokes this method when he leaves a portion at the pass. This 
+     * method invokes an alertTheWaiter() method inside the bar, for the first
+     * portion of each course, signaling the waiter to come to the kitchen to
+     * collect the portions.
      */
     public void alertTheWaiter()
     {
@@ -218,8 +376,8 @@ public class SharedKitchen {
         //One more portion cooked.
         numPortionsProducedByChef++;
         
-        //Get current thread.
-        Chef c = (Chef) Thread.currentThread();
+        //Get current entity.
+        Chef c = Chef.current();
         //Update chef's state to delivering portions
         c.setChefState(ChefStates.DILPOR);
         repo.updateChefState(ChefStates.DILPOR);
@@ -232,15 +390,19 @@ public class SharedKitchen {
         
         //When all portions have been prepared, next course comes and the number
         //of portions cooked starts at 0.
-        if(numPortionsProducedByChef == NSTUDENTS)
+        if(numPortionsProducedByChef == nStudents)
             numPortionsProducedByChef = 0;
+        
+        //The course of the portion, it is the one prepared until all of its
+        //portions are delivered.
+        int course = coursesPrepared;
          
         //Leaves critical region. 
         mutex.up();
         
         
-        //Chef blocks here, waiting for the waiter's arrival
-        waitForWaiter.down();
+        //Chef leaves the portion at the pass, blocking only if it is full.
+        pass.write(course);
         
     }
     
@@ -248,8 +410,8 @@ public class SharedKitchen {
     /**
      * Chef delivers the portions one by one until all the portions have been
      * delivered.
-     * @return Returns <code>true</code> if all portions have been delivered and
-     * false if not.
+     * @return Returns <code>true</code> if this was the last portion of the 
+     * course and false if not.
      */
     public boolean haveAllPortionsBeenDelivered()
     {
@@ -263,53 +425,69 @@ public class SharedKitchen {
         numPortionsDelivered++;
         
         //Checks if all portions have been delivered.
-        if (numPortionsDelivered == NSTUDENTS)  allPortionsDelivered = true;
+        if (numPortionsDelivered == nStudents)  allPortionsDelivered = true;
         else   allPortionsDelivered = false;
-                
-        //Leaves critical region.        
-        mutex.up();
-        
-        //Chef tell the waiter to pick up the portion.
-        portionDelivered.up();
         
         //Restart the numPortionsDelievred if all portions of this course have 
         //been delivered so that, in the next course, the numPortionsDelivered
         //starts at 0.
         if(allPortionsDelivered) numPortionsDelivered = 0;
+                
+        //Leaves critical region.        
+        mutex.up();
         
         return allPortionsDelivered;
     }
     
     
     /**
-     * The waiter collects all the portions, one by one.
+     * The waiter collects the portions from the pass, as many as his tray 
+     * holds. He waits for the first one and then takes the ones already at the
+     * pass, never more than the ones left in the course he is serving. The 
+     * portions of a course are all left before those of the next one, so the
+     * waiter always takes those of the course he is serving.
+     * @return Number of portions collected.
      */
-    public void collectPortion()
+    public int collectPortions()
     {
         //Enters in critical region.
         mutex.down();
         
-        //Get current thread.
-        Waiter w = ( (Waiter) Thread.currentThread());
+        //Get current entity.
+        Waiter w = Waiter.current();
         
         //Waiter only updates his state to waiting portion when he is
-        //delivering the first portion.
-        if(numPortionsDelivered == 0)
+        //collecting the first portion.
+        if(numPortionsCollected == 0)
         {
             //update waiter's state to waiting for portion.
             repo.updateWaiterState(WaiterStates.WAIPOR);
             w.setWaiterState(WaiterStates.WAIPOR);
         }
         
-        //Waiter unlocks the chef, signaling him that the waiter has arrived.
-        waitForWaiter.up();
+        //Portions of the current course still to be collected.
+        int left = nStudents - numPortionsCollected;
         
         //Leaves critical region.
         mutex.up();
         
-        //Waiter blocks here, waiting for to give him the food
-        portionDelivered.down();
+        //Waiter blocks here, waiting for a portion at the pass, and then takes
+        //the ones ready, as long as they fit in the tray.
+        tray[0] = pass.read();
+        int n = 1 + pass.drainTo(tray, Math.min(tray.length, left) - 1);
+        
+        //Enters in critical region.
+        mutex.down();
+        
+        //The portions collected; the next course starts at 0.
+        numPortionsCollected += n;
+        if(numPortionsCollected == nStudents)
+            numPortionsCollected = 0;
+        
+        //Leaves critical region.
+        mutex.up();
         
+        return n;
     }
         
     
@@ -321,8 +499,8 @@ public class SharedKitchen {
         //Enters in critical region.
         mutex.down();
         
-        //Get current thread.
-        Chef c = (Chef) Thread.currentThread();
+        //Get current entity.
+        Chef c = Chef.current();
         
         //update chef's state, who returns to dishing portion.
         c.setChefState(ChefStates.DISHPO);
@@ -334,7 +512,8 @@ public class SharedKitchen {
     
     
     /**
-     * Check if all the courses have been delivered.
+     * Invoked by the chef that delivered the last portion of a course, to 
+     * check if all the courses have been delivered.
      * @return Returns true if all courses have been delivered and false if not.
      */
     public boolean hasTheOrderBeenCompleted()
@@ -349,9 +528,16 @@ public class SharedKitchen {
         numCoursesDelivered++;
 
         //Checks if all courses have been delivered.
-        if (numCoursesDelivered == NCOURSES) allCoursesServed = true;
+        if (numCoursesDelivered == nCourses) allCoursesServed = true;
          else allCoursesServed = false;
         
+        //The other chefs can close the service.
+        if(allCoursesServed)
+        {
+            orderCompleted = true;
+            wakeIdleChefs();
+        }
+        
         //Leaves critical region.
         mutex.up();
         
@@ -360,19 +546,22 @@ public class SharedKitchen {
     
     
     /**
-     * Chef prepares another course.
+     * Chef prepares another course, calling the chefs that were left without
+     * portions to dish.
      */
     public void continuePreparation()
     {
         //Enters in critical region.
         mutex.down(); 
         
-        //Get current thread.
-        Chef c = ( (Chef) Thread.currentThread());
+        //Get current entity.
+        Chef c = Chef.current();
         
         //Update chef's state to preparing course.
         c.setChefState(ChefStates.PREPCO);
-        repo.updateCourse(numCoursesDelivered + 1);
+        coursesPrepared = numCoursesDelivered + 1;
+        repo.updateCourse(coursesPrepared);
+        wakeIdleChefs();
         
         //Leaves critical region.
         mutex.up();  
@@ -380,21 +569,65 @@ public class SharedKitchen {
     
     
     /**
-     * Chef ends his service.
+     * Chef ends his service. The last one to leave closes the kitchen.
      */
     public void cleanUp()
     {
         //Enters in critical region.
         mutex.down();
         
-        //Get current thread.
-        Chef c = (Chef) Thread.currentThread();
+        //Get current entity.
+        Chef c = Chef.current();
         
         //Update chef's state to closing service.
         c.setChefState(ChefStates.CLOSER);
-        repo.updateChefState(ChefStates.CLOSER);
+        if(++chefsClosed == nChefs)
+            repo.updateChefState(ChefStates.CLOSER);
         
         //Leaves critical region.
         mutex.up();
     }
+    
+    
+    /**
+     * Number of portions of each course first given to a chef.
+     * @param id chef's ID
+     * @return Number of portions.
+     */
+    private int share(int id)
+    {
+        return nStudents / nChefs + (id < nStudents % nChefs ? 1 : 0);
+    }
+    
+    
+    /**
+     * Takes a portion from the chef's deque or, if it is empty, steals one 
+     * from another chef.
+     * @param id chef's ID
+     * @return <code>true</code> if a portion was taken.
+     */
+    private boolean takePortion(int id)
+    {
+        if(portions[id].pop() != WorkStealingIntDeque.EMPTY)
+            return true;
+        for (int i = 1; i < nChefs; i++)
+            if(portions[(id + i) % nChefs].steal() != WorkStealingIntDeque.EMPTY)
+                return true;
+        return false;
+    }
+    
+    
+    /**
+     * Releases the chefs blocked for lack of portions. It must be called 
+     * inside the critical region.
+     */
+    private void wakeIdleChefs()
+    {
+        for (int i = 0; i < nChefs; i++)
+            if(chefIdle[i])
+            {
+                chefIdle[i] = false;
+                courseReady[i].up();
+            }
+    }
 }
@@ -21,29 +21,68 @@ package SharedRegions;
 
 //Import class semaphore
 import CommonInfra.Semaphore;
+//Import log writer and event ring
+import CommonInfra.LogWriter;
+import CommonInfra.MpscIntFIFO;
+import CommonInfra.EventJournal;
+//Import time source of the events' time stamps
+import CommonInfra.Clock;
+import CommonInfra.TimeSource;
 
 //Import entities states
 import Entities.States.ChefStates;
 import Entities.States.StudentStates;
 import Entities.States.WaiterStates;
 
-//Import problem's constants
-import static Main.Simulator.NSTUDENTS;
+//Import problem's parameters
+import Main.RestaurantConfig;
+import Main.Simulator.Backpressure;
+import Main.Simulator.LogFormat;
 
-//Import GenClass
-import genclass.TextFile;
+//Import queue for the custom lines
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 /**
  * Restaurant's shared repository zone.
+ * Every state change is encoded as a compact event and applied to the logged
+ * states, writing a new line. In synchronous mode the event is applied by the
+ * calling entity inside the critical region. In asynchronous mode
+ * ({@link RestaurantConfig#isAsyncLog()}) the entity only publishes it into a
+ * pre-allocated ring and returns, and a dedicated writer thread applies the
+ * events in publication order, in batches, so the log has the same content
+ * and ordering as in synchronous mode.
+ * With the {@link LogFormat#JOURNAL JOURNAL} format the events are appended
+ * to a binary {@link EventJournal} instead, and
+ * {@link #renderJournal(String, String) renderJournal} turns it into the text
+ * log afterwards.
+ * With the {@link LogWriter.FlushPolicy#EVERY_T_MS EVERY_T_MS} flush policy
+ * in synchronous mode, a flusher thread writes the lines left buffered after
+ * the last event of a burst, so that none waits longer than the policy's 
+ * time (in asynchronous mode the writer thread already flushes whenever the
+ * ring is empty).
+ * Every event can be stamped with its wall and its simulated time, taken from
+ * the dinner's {@link TimeSource} (its {@link Clock}, or the calendar of a 
+ * simulated dinner) by the entity that publishes it (in asynchronous
+ * mode, the stamps travel with the event through the ring, so the time the 
+ * writer thread takes to apply it is not accounted): the journal always keeps
+ * both, and the text log ends each states line with them when 
+ * {@link RestaurantConfig#isLogTimes()} is set.
  * @author Daniel Nunes and Rafael Direito
  */
 public class SharedRepo {
     
     /**
-     * Allows to manipulate text files.
+     * Log file, kept open from {@link #writeHeader(String) writeHeader} until
+     * {@link #closeLog() closeLog}.
      */
-    TextFile log;
+    private LogWriter log;
     
     /**
      * Log file where the data is written.
@@ -75,20 +114,174 @@ public class SharedRepo {
      */
     private Semaphore mutex;
     
+    /**
+     * Number of students attending at the dinner.
+     */
+    private final int nStudents;
+    
+    /**
+     * What an entity does when the log ring is full.
+     */
+    private final Backpressure backpressure;
+    
+    /**
+     * Binary journal, used instead of the text log with the
+     * {@link LogFormat#JOURNAL JOURNAL} format.
+     */
+    private EventJournal journal;
+    
+    /**
+     * Time source the events are stamped with.
+     */
+    private final TimeSource clock;
+    
+    /**
+     * If <code>true</code>, the states lines end with the time of their event.
+     */
+    private final boolean times;
+    
+    /**
+     * If <code>true</code>, the events are stamped with their time, for the
+     * journal or for the text log.
+     */
+    private final boolean stamped;
+    
+    /**
+     * Wall and simulated time, in nanoseconds, of the event being applied.
+     */
+    private long wallStamp, simStamp;
+    
+    /**
+     * Ring of published events, in asynchronous mode.
+     */
+    private MpscIntFIFO events;
+    
+    /**
+     * Thread that applies the published events, in asynchronous mode.
+     */
+    private Thread writer;
+    
+    /**
+     * Thread that flushes the lines left buffered, in synchronous mode with
+     * the {@link LogWriter.FlushPolicy#EVERY_T_MS EVERY_T_MS} flush policy.
+     */
+    private Thread flusher;
+    
+    /**
+     * If <code>true</code>, the log needs a flusher thread.
+     */
+    private final boolean timedFlush;
+    
+    /**
+     * Lines given to {@link #customAppendLine(String) customAppendLine},
+     * waiting for their event to be applied.
+     */
+    private ConcurrentLinkedQueue<String> customLines;
+    
+    /**
+     * Number of events dropped because the ring was full.
+     */
+    private AtomicLong droppedEvents;
+    
+    /**
+     * Maximum number of events applied between two flushes of the writer.
+     */
+    private static final int BATCH_SIZE = 256;
+    
+    /**
+     * Event kinds, stored in the upper bits of an event. The lower bits hold
+     * the state ordinal (and, for students, the ID above it) or the course
+     * number; a custom line has no payload, its text being queued apart.
+     */
+    private static final int CHEF = 0, WAITER = 1, STUDENT = 2, COURSE = 3,
+            CUSTOM = 4, KIND_SHIFT = 28, STATE_BITS = 4, PAYLOAD_MASK = (1 << KIND_SHIFT) - 1;
+    
+    /**
+     * Event that stops the writer thread.
+     */
+    private static final int STOP = -1;
+    
+    /**
+     * Journal entity ids of the chef, the waiter and of a course change (the
+     * students use their own IDs).
+     */
+    private static final int JOURNAL_CHEF = -1, JOURNAL_WAITER = -2,
+            JOURNAL_COURSE = -3;
+    
+    /**
+     * Width of each column of the states lines.
+     */
+    private static final int COLUMN_WIDTH = 16;
+    
+    /**
+     * Entities states, indexed by ordinal (<code>values()</code> returns a new
+     * array on every call).
+     */
+    private static final ChefStates[] CHEF_STATES = ChefStates.values();
+    private static final WaiterStates[] WAITER_STATES = WaiterStates.values();
+    private static final StudentStates[] STUDENT_STATES = StudentStates.values();
+    
+    /**
+     * Column of each state, already padded and encoded, indexed by ordinal, so
+     * that writing a states line allocates nothing.
+     */
+    private static final byte[][] CHEF_COLUMNS = columns(CHEF_STATES);
+    private static final byte[][] WAITER_COLUMNS = columns(WAITER_STATES);
+    private static final byte[][] STUDENT_COLUMNS = columns(STUDENT_STATES);
+    
+    /**
+     * Text following the number in a course line.
+     */
+    private static final byte[] COURSE_SUFFIX = 
+            " course".getBytes(StandardCharsets.US_ASCII);
+    
+    /**
+     * Constructor of restaurant's shared repository zone, stamping the events
+     * in real time.
+     * @param config Dinner's parameters.
+     */
+    public SharedRepo(RestaurantConfig config)
+    {
+        this(config, Clock.real());
+    }
+    
+    
     /**
      * Constructor of restaurant's shared repository zone.
+     * @param config Dinner's parameters.
+     * @param clock Time source the events are stamped with.
      */
-    public SharedRepo()
+    public SharedRepo(RestaurantConfig config, TimeSource clock)
     {
+        nStudents = config.getNStudents();
+        backpressure = config.getLogBackpressure();
+        this.clock = clock;
+        times = config.isLogTimes();
+        
         //Initializate entities states.
-        studentsState = new StudentStates[NSTUDENTS];
-        for (int i = 0; i< NSTUDENTS ; i++)
+        studentsState = new StudentStates[nStudents];
+        for (int i = 0; i< nStudents ; i++)
             studentsState[i] = StudentStates.GOTTRT;
         chefState = ChefStates.WAITOD;
         waiterState = WaiterStates.APPSIT;
         
         //Initializate log.
-        log =  new TextFile();
+        log = new LogWriter(config.getLogFlushPolicy(), config.getLogFlushLines(),
+                config.getLogFlushMillis());
+        timedFlush = !config.isAsyncLog() && config.getLogFormat() == LogFormat.TEXT
+                && config.getLogFlushPolicy() == LogWriter.FlushPolicy.EVERY_T_MS
+                && config.getLogFlushMillis() > 0;
+        
+        if(config.getLogFormat() == LogFormat.JOURNAL)
+            journal = new EventJournal();
+        stamped = journal != null || times;
+        
+        //Initializate asynchronous pipeline, whose ring carries the stamps of
+        //the events.
+        if(config.isAsyncLog())
+            events = new MpscIntFIFO(config.getLogRingSize(), stamped);
+        customLines = new ConcurrentLinkedQueue<>();
+        droppedEvents = new AtomicLong();
         
         //Initializate semaphores.
         mutex = new Semaphore();
@@ -104,15 +297,8 @@ public class SharedRepo {
      */
     public void updateChefState(ChefStates cState)
     {
-        //Enters in critical region.
-        mutex.down();
-        
         //Append a new line with the new chef state.
-        chefState = cState;
-        appendLine(fileName, 0);
-        
-        //Leaves critical region.
-        mutex.up();
+        publish((CHEF << KIND_SHIFT) | cState.ordinal());
     }
     
     
@@ -122,15 +308,8 @@ public class SharedRepo {
      */
     public void updateWaiterState(WaiterStates wState)
     {
-        //Enters in critical region.
-        mutex.down();
-        
         //Append a new line with the new waiter state.
-        waiterState = wState;
-        appendLine(fileName, 0);
-        
-        //Leaves critical region.
-        mutex.up();
+        publish((WAITER << KIND_SHIFT) | wState.ordinal());
     }
     
     
@@ -141,15 +320,8 @@ public class SharedRepo {
      */
     public void updateStudentState(StudentStates sState, int ID)
     {
-        //Enters in critical region.
-        mutex.down();
-        
         //Append a new line with the new student state.
-        studentsState[ID] = sState;
-        appendLine(fileName, 0);
-        
-        //Leaves critical region.
-        mutex.up();
+        publish((STUDENT << KIND_SHIFT) | (ID << STATE_BITS) | sState.ordinal());
     }
     
     
@@ -158,18 +330,40 @@ public class SharedRepo {
      * @param courseNumber Current course number.
      */
     public void updateCourse(int courseNumber)
+    {
+        //Append a new line refering the new course number, followed by a line
+        //with the chef preparing it.
+        publish((COURSE << KIND_SHIFT) | courseNumber);
+    }
+    
+    
+    /**
+     * Calls initFile that will create a new log file and his header.
+     * @param fileName Log file where the data will be written.
+     */
+    public void writeHeader(String fileName)
     {
         //Enters in critical region.
         mutex.down();
         
-        //Append a new line only refering the new course number.
-        this.courseNumber = courseNumber;
-        appendLine(fileName, 1);
+        //Function that creates a new file and writes the header on it.
+        initFile(fileName);
+        
+        //From now on, the writer thread owns the log.
+        if(events != null)
+        {
+            writer = new Thread(this::writeEvents, "RepoLogWriter");
+            writer.setDaemon(true);
+            writer.start();
+        }
         
-        //Append a new line with the new chef state, that is preparing the new
-        //course.
-        chefState = ChefStates.PREPCO;
-        appendLine(fileName, 0);
+        //The lines left buffered are flushed on time.
+        if(timedFlush)
+        {
+            flusher = new Thread(this::flushOnTime, "RepoLogFlusher");
+            flusher.setDaemon(true);
+            flusher.start();
+        }
         
         //Leaves critical region.
         mutex.up();
@@ -177,71 +371,405 @@ public class SharedRepo {
     
     
     /**
-     * Calls initFile that will create a new log file and his header.
-     * @param fileName Log file where the data will be written.
+     * Renders the column of each state: its name, left justified and padded
+     * with spaces to the column width.
+     * @param states States, in ordinal order.
+     * @return Encoded columns, indexed by ordinal.
      */
-    public void writeHeader(String fileName)
+    private static byte[][] columns(Enum<?>[] states)
     {
+        byte[][] cols = new byte[states.length][];
+        for(int i = 0; i < states.length; i++)
+        {
+            String name = states[i].toString();
+            cols[i] = new byte[Math.max(COLUMN_WIDTH, name.length())];
+            Arrays.fill(cols[i], (byte) ' ');
+            for(int c = 0; c < name.length(); c++)
+                cols[i][c] = (byte) name.charAt(c);
+        }
+        return cols;
+    }
+    
+    
+    /**
+     * Closes the log file, writing any line still buffered. Invoked at the end
+     * of the simulation.
+     */
+    public void closeLog()
+    {
+        //Stop the flusher thread, which may be waiting to enter the critical
+        //region.
+        if(flusher != null)
+        {
+            flusher.interrupt();
+            try
+            {
+                flusher.join();
+            }
+            catch (InterruptedException e)
+            {
+                System.err.println("Couldn't end the log flusher!");
+                System.exit(1);
+            }
+            flusher = null;
+        }
+        
         //Enters in critical region.
         mutex.down();
         
-        //Function that creates a new file and writes the header on it.
-        initFile(fileName);
+        //Let the writer thread apply every published event and end.
+        if(writer != null)
+        {
+            events.write(STOP);
+            try
+            {
+                writer.join();
+            }
+            catch (InterruptedException e)
+            {
+                System.err.println("Couldn't end the log writer!");
+                System.exit(1);
+            }
+            writer = null;
+        }
+        
+        log.close();
+        if(journal != null)
+            journal.close();
+        
+        if(droppedEvents.get() > 0)
+            System.err.println("Log events dropped: " + droppedEvents.get());
         
         //Leaves critical region.
         mutex.up();
     }
     
     
+    /**
+     * Number of events dropped because the ring was full (only with the
+     * {@link Backpressure#DROP DROP} policy).
+     * @return number of dropped events
+     */
+    public long getDroppedEvents()
+    {
+        return droppedEvents.get();
+    }
+    
+    
+    /**
+     * Publishes a state change event, stamped with the current time if the log
+     * keeps it. In synchronous mode it is applied right away, inside the 
+     * critical region. In asynchronous mode it is handed to the writer thread,
+     * with its stamps, blocking while the ring is full or dropping the event,
+     * according to {@link RestaurantConfig#getLogBackpressure()}.
+     * @param event Encoded event.
+     */
+    private void publish(int event)
+    {
+        if(events == null)
+        {
+            //Enters in critical region.
+            mutex.down();
+            
+            //Stamped inside the critical region, so that the stamps follow
+            //the order of the lines.
+            if(stamped)
+                apply(event, clock.wallNanos(), clock.simNanos());
+            else
+                apply(event, 0, 0);
+            
+            //Leaves critical region.
+            mutex.up();
+            return;
+        }
+        
+        long wallNanos = 0, simNanos = 0;
+        if(stamped)
+        {
+            wallNanos = clock.wallNanos();
+            simNanos = clock.simNanos();
+        }
+        if(backpressure == Backpressure.BLOCK)
+            events.write(event, wallNanos, simNanos);
+        else if(!events.offer(event, wallNanos, simNanos))
+            droppedEvents.incrementAndGet();
+    }
+    
+    
+    /**
+     * Life cycle of the writer thread: waits for an event, applies it and every
+     * other event already published, up to a batch, with the stamps given by
+     * their publishers, and flushes the log when the ring is empty (group 
+     * commit).
+     */
+    private void writeEvents()
+    {
+        int[] batch = new int[BATCH_SIZE];
+        long[] first = stamped ? new long[2] : null;
+        long[] stamps = stamped ? new long[2 * BATCH_SIZE] : null;
+        int event, n;
+        long wallNanos, simNanos;
+        
+        while(true)
+        {
+            //Blocks waiting for an event, then takes the ones already
+            //published behind it.
+            event = events.read(first);
+            n = events.drainTo(batch, stamps, BATCH_SIZE);
+            for(int i = -1; i < n; i++)
+            {
+                wallNanos = simNanos = 0;
+                if(i >= 0)
+                {
+                    event = batch[i];
+                    if(stamped)
+                    {
+                        wallNanos = stamps[2 * i];
+                        simNanos = stamps[2 * i + 1];
+                    }
+                }
+                else if(stamped)
+                {
+                    wallNanos = first[0];
+                    simNanos = first[1];
+                }
+                if(event == STOP)
+                {
+                    log.flush();
+                    return;
+                }
+                apply(event, wallNanos, simNanos);
+            }
+            
+            //Nothing else to write, so the batch is committed to the file.
+            if(events.isEmpty())
+                log.flush();
+        }
+    }
+    
+    
+    /**
+     * Life cycle of the flusher thread: sleeps until the buffered lines are
+     * due and flushes them, until it is interrupted.
+     */
+    private void flushOnTime()
+    {
+        long wait;
+        
+        while(true)
+        {
+            //Enters in critical region.
+            mutex.down();
+            
+            log.flushIfDue();
+            wait = log.nanosToNextFlush();
+            
+            //Leaves critical region.
+            mutex.up();
+            
+            try
+            {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            catch (InterruptedException e)
+            {
+                return;
+            }
+        }
+    }
+    
+    
+    /**
+     * Applies an event to the logged states and writes the corresponding
+     * lines.
+     * @param event Encoded event.
+     * @param wallNanos Wall time of the event.
+     * @param simNanos Simulated time of the event.
+     */
+    private void apply(int event, long wallNanos, long simNanos)
+    {
+        int payload = event & PAYLOAD_MASK;
+        wallStamp = wallNanos;
+        simStamp = simNanos;
+        
+        if(journal != null)
+        {
+            journalEvent(event);
+            return;
+        }
+        
+        switch(event >>> KIND_SHIFT)
+        {
+            case CHEF:
+                chefState = CHEF_STATES[payload];
+                appendLine(0);
+                break;
+                
+            case WAITER:
+                waiterState = WAITER_STATES[payload];
+                appendLine(0);
+                break;
+                
+            case STUDENT:
+                studentsState[payload >>> STATE_BITS] = 
+                        STUDENT_STATES[payload & ((1 << STATE_BITS) - 1)];
+                appendLine(0);
+                break;
+                
+            case COURSE:
+                //Append a new line only refering the new course number,
+                //and a new line with the chef preparing the new course.
+                courseNumber = payload;
+                appendLine(1);
+                chefState = ChefStates.PREPCO;
+                appendLine(0);
+                break;
+                
+            case CUSTOM:
+                //Write a new line with the custom string.
+                log.writeString("-->"+customLines.poll());
+                log.endLine();
+                break;
+        }
+    }
+    
+    
     /**
      * Appends a new line to the log file based on the option given by argument.
-     * @param fileName Log file where the data will be written.
+     * Must be invoked inside the critical region.
      * @param optType If option == 0, a new states line will be written with the
      * updated states. If option == 1, a new course line will be written 
      * updating the current course.
      */
-    public void appendLine(String fileName, int optType)
+    private void appendLine(int optType)
     {
         if(optType == 0)
         {
-            boolean error;
-            
-            //openForAppending returns true if the file can be created and false
-            //in other case.
-            error = !log.openForAppending(null, fileName);
-            
-            //Exit program if file wasn't created.
-            if(error)
+            //Write states line with the updated states for each entitie,
+            //from the pre-rendered columns.
+            log.writeBytes(CHEF_COLUMNS[chefState.ordinal()]);
+            log.writeBytes(WAITER_COLUMNS[waiterState.ordinal()]);
+            for(int i = 0 ; i<nStudents; i++)
+                log.writeBytes(STUDENT_COLUMNS[studentsState[i].ordinal()]);
+            if(times)
             {
-                System.err.println("Unable to create file!");
-                System.exit(1);
+                //Wall and simulated time of the event, in microseconds.
+                log.writeFormLong(COLUMN_WIDTH, wallStamp / 1000);
+                log.writeLong(simStamp / 1000);
             }
-            
-            //Write states line with the updated states for each entitie.
-            log.writeFormString(16 , chefState.name() ,
-                    waiterState.toString());
-            for(int i = 0 ; i<NSTUDENTS; i++)
-                log.writeFormString(16 , studentsState[i].toString());
-            log.writeString("\n");
-            log.close();
+            log.endLine();
         }
         
         if(optType == 1)
         {
-            boolean error;
-            //openForAppending returns true if the file can be created and false
-            //in other case.
-            error = !log.openForAppending(null, fileName);
-            
-            //Exit program if file wasn't created.
-            if(error)
+            //Write course line with the current course.
+            log.writeInt(courseNumber);
+            log.writeBytes(COURSE_SUFFIX);
+            log.endLine();
+        }
+    }
+    
+    
+    /**
+     * Appends an event to the binary journal. Custom lines are not journaled.
+     * @param event Encoded event.
+     */
+    private void journalEvent(int event)
+    {
+        int payload = event & PAYLOAD_MASK;
+        
+        switch(event >>> KIND_SHIFT)
+        {
+            case CHEF:
+                journal.append(wallStamp, simStamp, JOURNAL_CHEF, payload, courseNumber);
+                break;
+                
+            case WAITER:
+                journal.append(wallStamp, simStamp, JOURNAL_WAITER, payload, courseNumber);
+                break;
+                
+            case STUDENT:
+                journal.append(wallStamp, simStamp, payload >>> STATE_BITS, 
+                        payload & ((1 << STATE_BITS) - 1), courseNumber);
+                break;
+                
+            case COURSE:
+                courseNumber = payload;
+                journal.append(wallStamp, simStamp, JOURNAL_COURSE, 0, courseNumber);
+                break;
+                
+            case CUSTOM:
+                customLines.poll();
+                break;
+        }
+    }
+    
+    
+    /**
+     * Renders a binary journal into the text log, with the same layout the
+     * text format would have produced.
+     * @param journalName Journal file.
+     * @param fileName Log file where the data will be written.
+     * @throws IOException if the journal cannot be read.
+     */
+    public static void renderJournal(String journalName, String fileName)
+            throws IOException
+    {
+        renderJournal(journalName, fileName, false);
+    }
+    
+    
+    /**
+     * Renders a binary journal into the text log, with the same layout the
+     * text format would have produced.
+     * @param journalName Journal file.
+     * @param fileName Log file where the data will be written.
+     * @param times If <code>true</code>, each states line ends with the wall
+     * and the simulated time of its event, as with 
+     * {@link RestaurantConfig#isLogTimes()}.
+     * @throws IOException if the journal cannot be read.
+     */
+    public static void renderJournal(String journalName, String fileName, 
+            boolean times) throws IOException
+    {
+        //The journal is read in chunks, whatever its size, and closed at the end.
+        try(EventJournal.Reader reader = new EventJournal.Reader(journalName))
+        {
+            //Replay the journal in a synchronous, text format, repository, for the
+            //number of students the journal was written for.
+            Properties p = new Properties();
+            p.setProperty("students", Integer.toString(reader.entities()));
+            p.setProperty("log.async", "false");
+            p.setProperty("log.format", LogFormat.TEXT.name());
+            p.setProperty("log.times", Boolean.toString(times));
+            SharedRepo repo = new SharedRepo(new RestaurantConfig(p));
+            repo.writeHeader(fileName);
+            while(reader.next())
             {
-                System.err.println("Unable to create file!");
-                System.exit(1);
+                switch(reader.entity())
+                {
+                    case JOURNAL_CHEF:
+                        repo.apply((CHEF << KIND_SHIFT) | reader.state(), 
+                                reader.wallNanos(), reader.simNanos());
+                        break;
+                    
+                    case JOURNAL_WAITER:
+                        repo.apply((WAITER << KIND_SHIFT) | reader.state(), 
+                                reader.wallNanos(), reader.simNanos());
+                        break;
+                    
+                    case JOURNAL_COURSE:
+                        repo.apply((COURSE << KIND_SHIFT) | reader.course(), 
+                                reader.wallNanos(), reader.simNanos());
+                        break;
+                    
+                    default:
+                        repo.apply((STUDENT << KIND_SHIFT) | 
+                                (reader.entity() << STATE_BITS) | reader.state(),
+                                reader.wallNanos(), reader.simNanos());
+                }
             }
-            //Write course line with the current course.
-            log.writelnString(courseNumber+" course");
-            log.close();
+            repo.closeLog();
         }
     }
     
@@ -254,24 +782,17 @@ public class SharedRepo {
      */
     public void customAppendLine(String input)
     {
-        //Enters in critical region.
+        //Enters in critical region, so that the lines and their events are
+        //queued in the same order.
         mutex.down();
         
-        boolean error;
-        //openForAppending returns true if the file can be created and false
-        //in other case.
-        error = !log.openForAppending(null, fileName);
-        
-        //Exit program if file wasn't created.
-        if(error)
-        {
-            System.err.println("Unable to open file!");
-            System.exit(1);
-        }
-        
-        //Write a new line with the string passed as argument.
-        log.writelnString("-->"+input);
-        log.close();
+        //Write a new line with the string passed as argument. This event is
+        //never dropped.
+        customLines.add(input);
+        if(events == null)
+            apply(CUSTOM << KIND_SHIFT, 0, 0);
+        else
+            events.write(CUSTOM << KIND_SHIFT);
         
         //Leaves critical region.
         mutex.up();
@@ -285,9 +806,23 @@ public class SharedRepo {
     private void initFile(String fileName)
     {
         boolean error;
-        //openForAppending returns true if the file can be created and false
-        //in other case.
-        error = !log.openForWriting(null, fileName);
+        
+        //With the journal format, only the journal is created. The initial
+        //states are implied by it.
+        if(journal != null)
+        {
+            if(!journal.open(fileName, nStudents))
+            {
+                System.err.println("Unable to create file!");
+                System.exit(1);
+            }
+            this.fileName = fileName;
+            return;
+        }
+        
+        //open returns true if the file can be created and false
+        //in other case. The file stays open until closeLog() is called.
+        error = !log.open(fileName, false);
         
         //Exit program if file wasn't created.
         if(error)
@@ -303,20 +838,22 @@ public class SharedRepo {
         //Print an empty line.
         //Print the columns identifier. 
         //Print the initial state.
-        for (int i = 0 ; i <  (32 + 16*NSTUDENTS)/2 - 7 ; i++)
-            log.writeChar(' ');
-        log.writelnString("THE RESTAURANT\n");
+        log.writeFormString((32 + COLUMN_WIDTH*nStudents)/2 - 7 , "");
+        log.writeString("THE RESTAURANT");
+        log.endLine();
+        log.endLine();
 
-        log.writeFormString(16 , "CHEF_STATE","WAITER_STATE");
-        for(int i = 0 ; i<NSTUDENTS; i++)
-            log.writeFormString(16 , "STU_STATE"+(i+1));
+        log.writeFormString(COLUMN_WIDTH , "CHEF_STATE");
+        log.writeFormString(COLUMN_WIDTH , "WAITER_STATE");
+        for(int i = 0 ; i<nStudents; i++)
+            log.writeFormString(COLUMN_WIDTH , "STU_STATE"+(i+1));
+        if(times)
+        {
+            log.writeFormString(COLUMN_WIDTH , "WALL_US");
+            log.writeString("SIM_US");
+        }
+        log.endLine();
         
-        log.writeString("\n");
-        log.writeFormString(16 , chefState.name() ,waiterState.toString());
-        for(int i = 0 ; i<NSTUDENTS; i++)
-            log.writeFormString(16 , studentsState[i].toString());
-
-        log.writeString("\n");
-        log.close();
+        appendLine(0);
     }
 }
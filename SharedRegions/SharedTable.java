@@ -20,45 +20,106 @@ package SharedRegions;
 
 //import common infra-strutures
 import CommonInfra.Semaphore;
-import CommonInfra.MemFIFO;
+import CommonInfra.IntFIFO;
+import CommonInfra.MpscIntFIFO;
+import CommonInfra.PhaseBarrier;
+import CommonInfra.Clock;
 //import entities
 import Entities.Student;
 import Entities.Waiter;
 //import entities states
 import Entities.States.StudentStates;
 import Entities.States.WaiterStates;
-//import problem's constants
-import static Main.Simulator.NSTUDENTS;
-import static Main.Simulator.FIRST_ID;
-import static Main.Simulator.LAST_ID;
-import static Main.Simulator.NCOURSES;
+//import problem's parameters
+import Main.RestaurantConfig;
 
 
 /**
  * Table's shared region.
+ * Its state is partitioned by the phases of the dinner (seating, ordering, 
+ * service, eating and billing), each one guarded by a lock of its own, so 
+ * that, for instance, a late student taking a seat does not wait for a 
+ * portion being delivered. Lock order: a thread holds at most one table lock
+ * at a time, and may enter the bar and the repository while holding it, 
+ * never the other way round. The ids of the first and the last students are
+ * written under the seating lock and only read after every student has 
+ * chosen his course, so they need no lock of their own.
+ * The end of each course is a phase of a barrier the students arrive at, 
+ * and the service of each course (and, at last, the payment of the bill) a 
+ * phase of another one the students wait on.
  * @author Daniel Nunes and Rafael Direito
  */
 public class SharedTable 
 {
     /**
-     * Guarantees the critical region is only accessible in mutual 
-     * exclusion regime.
+     * Phases of the dinner, each one with its own critical region.
      */
-    private Semaphore mutex;
+    public enum Phase 
+    {
+        /**
+         * Arrival, salute and reading of the menu.
+         */
+        SEATING,
+        /**
+         * Choice of the courses and description of the order.
+         */
+        ORDERING,
+        /**
+         * Delivery of the portions.
+         */
+        SERVICE,
+        /**
+         * Meal and end of the course.
+         */
+        EATING,
+        /**
+         * Payment of the bill and leaving.
+         */
+        BILLING
+    }
+    
+    
+    /**
+     * Guarantee each critical region is only accessible in mutual exclusion 
+     * regime, one per phase (or the same one for every phase, if the table 
+     * is not striped).
+     */
+    private Semaphore[] lock;
+    
+    
+    /**
+     * Contention on the locks of the table.
+     */
+    private TableContention contention;
 
     
     
     /**
-     * Signals the First Student that another one has already chosen his course.
+     * Signals the First Student that the waiter has got the pad.
      */
     private Semaphore courseChosen;
     
     
     /**
-     * Semaphore array that blocks each students until all oh them
-     * receive their food.
+     * Order accumulator: every student arrives at it with his choice, at the
+     * same time, and its first phase is over once the order is complete.
+     */
+    private PhaseBarrier order;
+    
+    
+    /**
+     * Barrier whose phases are the courses served, the payment of the bill 
+     * being the last one. Its single party is the waiter (or the student 
+     * paying the bill) and the students wait on it.
      */
-    private Semaphore[] served;
+    private PhaseBarrier served;
+    
+    
+    /**
+     * Barrier whose phases are the courses eaten, the students being its 
+     * parties.
+     */
+    private PhaseBarrier finished;
     
     
     /**
@@ -100,12 +161,6 @@ public class SharedTable
     private Semaphore waiterPresentedTheBill;
     
     
-    /**
-     * Signals that the first student to arrived has received information
-     * regarding the course choice of another one.
-     */
-    private Semaphore courseInformationAcknowledged;
-    
     
     /**
      * Counts the students that are already seated.
@@ -113,35 +168,59 @@ public class SharedTable
     private int nStudentsSeated;
     
     /**
-     * Counts the students that have chosen their course.
+     * Number of courses each student has eaten.
      */
-    private int nStudentsChose;
+    private int[] coursesEaten;
     
      /**
-     * Counts the students that have already eaten.
+     * Counts the the number of portions that have been served.
      */
-    private int NStudsEat;
+    private int portionsServed;
     
-     /**
-     * Current course number.
+    /**
+     * ID of the first student arriving.
      */
-    private int currentCourse;
+    private int firstID;
     
-     /**
-     * Counts the the number of portions that have been served.
+    /**
+     * ID of the last student arriving.
      */
-    private int portionsServed;
+    private int lastID;
     
     /**
-    * If <code>true</code>, the first student is already organizing the order. 
-    */
-    private boolean firstOrganizedOrder;
+     * FIFO saving the students as they come inside the restaurant. 
+     * Many students write into it and only the waiter reads from it, so it is
+     * a lock-free FIFO of primitive ids.
+     */
+    
+    private IntFIFO studentsArrivalFIFO;
     
     /**
-     * FIFO saving the students as they come inside the restaurant. 
+     * If <code>true</code>, the waiter salutes every student waiting in the
+     * FIFO in a single trip.
      */
+    private final boolean batchSalute;
     
-    private MemFIFO studentsArrivalFIFO;
+    /**
+     * In batch salute mode, <code>true</code> while a salute request is at
+     * the bar and the students arriving meanwhile will be saluted with it.
+     */
+    private boolean saluteRequested;
+    
+    /**
+     * Students saluted together, in batch salute mode.
+     */
+    private int[] saluteBatch;
+    
+    /**
+     * Number of students attending at the dinner.
+     */
+    private final int nStudents;
+    
+    /**
+     * Number of courses.
+     */
+    private final int nCourses;
     
     /**
      * Declaration of the shared repository.
@@ -153,52 +232,103 @@ public class SharedTable
      */
     private SharedBar bar;
     
+    /**
+     * Clock the students eat by.
+     */
+    private final Clock clock;
+    
     
     
     /**
      * Shared Table's default constructor.
      * @param repo general repository
      * @param bar restaurant's shared bar zone
+     * @param config dinner's parameters
+     * @param clock clock the students eat by
      */
-    public SharedTable ( SharedRepo repo, SharedBar bar)
+    public SharedTable ( SharedRepo repo, SharedBar bar, RestaurantConfig config,
+            Clock clock)
     {
+        //Initialize dinner's parameters
+        nStudents = config.getNStudents();
+        nCourses = config.getNCourses();
+        batchSalute = config.isBatchSalute();
+        
         //Initialize shared regions
         this.repo = repo;
         this.bar = bar;
+        this.clock = clock;
         
         //Instanciate and Initialize studentsArrivalFIFO
-        studentsArrivalFIFO = new MemFIFO(NSTUDENTS);
+        studentsArrivalFIFO = new MpscIntFIFO(nStudents);
+        saluteBatch = new int[nStudents];
+        saluteRequested = false;
         
         //Inicialize all the counters
         nStudentsSeated = 0;
-        NStudsEat = 0;
+        coursesEaten = new int[nStudents];
         portionsServed = 0;
-        nStudentsChose = 0;
-        currentCourse = 1;
         
-        //Initialize firstOrganizedOrder
-        firstOrganizedOrder = false;
+        //Instanciate the locks, one per phase or a single one
+        lock = new Semaphore[Phase.values().length];
+        for (int i = 0; i < lock.length; i++)
+            lock[i] = (config.isTableStriped() || i == 0) ? new Semaphore() : lock[0];
+        contention = new TableContention();
         
         //Instanciate ans Inititalize all the Semaphores
-        mutex = new Semaphore();
-        studentSaluted = new Semaphore [NSTUDENTS];
+        studentSaluted = new Semaphore [nStudents];
         orderDescribed =  new Semaphore();
         billPayed =  new Semaphore();
         courseChosen =  new Semaphore();
         studenReadTheMenu = new Semaphore();
         billsPaymentConfirmed = new Semaphore();
         waiterPresentedTheBill = new Semaphore();
-        courseInformationAcknowledged = new Semaphore();
-        for (int i = 0; i < NSTUDENTS; i++)
+        for (int i = 0; i < nStudents; i++)
             studentSaluted[i]= new Semaphore();
         
-        served =  new Semaphore [NSTUDENTS];
-        for (int i = 0; i < NSTUDENTS; i++)
-            served[i]= new Semaphore();
+        //Instanciate the barriers, the students arriving through a combining
+        //tree when there are many of them
+        served = new PhaseBarrier(1);
+        finished = new PhaseBarrier(nStudents, config.getBarrierFanIn());
+        order = new PhaseBarrier(nStudents, config.getBarrierFanIn());
         
-        //Guarentee that at least one entity will be able to enter inside the 
+        //Guarentee that at least one entity will be able to enter inside each 
         //critical region
-        mutex.up();
+        for (int i = 0; i < lock.length; i++)
+            if(i == 0 || lock[i] != lock[0])
+                lock[i].up();
+    }
+    
+    
+    /**
+     * Enters the critical region of a phase, accounting the time waited.
+     * @param phase phase of the dinner
+     */
+    private void lock(Phase phase)
+    {
+        Semaphore l = lock[phase.ordinal()];
+        long waited = 0;
+        
+        //only a lock that is taken is waited for
+        if(!l.tryDown())
+        {
+            long start = System.nanoTime();
+            l.down();
+            waited = Math.max(System.nanoTime() - start, 1);
+        }
+        
+        //accounted inside the critical region
+        contention.record(phase, waited);
+    }
+    
+    
+    /**
+     * Leaves the critical region of a phase.
+     * @param phase phase of the dinner
+     */
+    private void unlock(Phase phase)
+    {
+        lock[phase.ordinal()].up();
     }
     
     
@@ -212,18 +342,23 @@ public class SharedTable
         int arrivalOrder;
         
         //enter critical region
-        mutex.down();
+        lock(Phase.SEATING);
         
         //get student's ID
-        Student s = ((Student) Thread.currentThread());
+        Student s = Student.current();
         int studentID = s.getStudentID();
         
         //update the student state to taking a seat at the table
         s.setStudentState(StudentStates.TASATT);
         repo.updateStudentState(StudentStates.TASATT, studentID);
         
-        //waking up the waiter at the bar
-        bar.studentArrived();
+        //waking up the waiter at the bar, unless he has already been called
+        //to salute a batch of students this one will join
+        if(!batchSalute || !saluteRequested)
+        {
+            bar.studentArrived();
+            saluteRequested = true;
+        }
         
         //save arrivalOrder
         arrivalOrder = nStudentsSeated++;
@@ -232,11 +367,11 @@ public class SharedTable
         studentsArrivalFIFO.write(studentID);
         
         //update FIRST and LAST student to arrive
-        if(arrivalOrder == 0) FIRST_ID = studentID;
-        if(arrivalOrder == NSTUDENTS-1) LAST_ID = studentID;
+        if(arrivalOrder == 0) firstID = studentID;
+        if(arrivalOrder == nStudents-1) lastID = studentID;
         
         //exit critical region
-        mutex.up();
+        unlock(Phase.SEATING);
         
         //Student blocks here, waiting for the waiter to salute him
         studentSaluted[studentID].down();
@@ -249,30 +384,49 @@ public class SharedTable
      * Method invoked by the waiter, each time a student enters the restaurant.
      * The waiter comes and salutes the student, allowing him to take a seat
      * at the table, joining his companions.
+     * In batch salute mode, every student waiting in the FIFO is saluted at 
+     * once and the waiter waits for all of them to read the menu.
      */
     public void saluteTheClient()
     {
+        //number of students saluted
+        int nSaluted = 1;
+        
         //enter critical region        
-        mutex.down();
+        lock(Phase.SEATING);
         
-        Waiter w = ((Waiter) Thread.currentThread());
+        Waiter w = Waiter.current();
        
         //update the waiter's state
         w.setWaiterState(WaiterStates.PREMEN);
         repo.updateWaiterState(WaiterStates.PREMEN);
                 
-        //get the next client to salute, from FIFO
-        int studentID = (int) studentsArrivalFIFO.read();
-        
-        //salute one client, who was waiting in a FIFO, unlocking him
-        studentSaluted[studentID].up();
+        if(batchSalute)
+        {
+            //get every client waiting in the FIFO; the next one to arrive 
+            //will have to call the waiter again
+            nSaluted = studentsArrivalFIFO.drainTo(saluteBatch, saluteBatch.length);
+            saluteRequested = false;
+            
+            //salute them all, unlocking them
+            for (int i = 0; i < nSaluted; i++)
+                studentSaluted[saluteBatch[i]].up();
+        }
+        else
+        {
+            //get the next client to salute, from FIFO
+            int studentID = studentsArrivalFIFO.read();
+
+            //salute one client, who was waiting in a FIFO, unlocking him
+            studentSaluted[studentID].up();
+        }
         
         //exit critical region
-        mutex.up();
+        unlock(Phase.SEATING);
         
-        //Waiter blocks here, waiting for the student to acknowledge he 
-        //was saluted and read the menu        
-        studenReadTheMenu.down();
+        //Waiter blocks here, waiting for the students to acknowledge they
+        //were saluted and read the menu        
+        studenReadTheMenu.down(nSaluted);
     }
     
     
@@ -283,9 +437,9 @@ public class SharedTable
     public void readTheMenu()
     {
         //enter critical region
-        mutex.down();
+        lock(Phase.SEATING);
         
-        Student s = ((Student) Thread.currentThread());
+        Student s = Student.current();
 
         //update student state to SelectingCourse
         s.setStudentState(StudentStates.SELTCO);
@@ -296,106 +450,61 @@ public class SharedTable
         studenReadTheMenu.up();
       
         //exit critical region
-        mutex.up();
+        unlock(Phase.SEATING);
     }
     
    
     /**
      * In here, the first student receives all the course choices of 
-     * his companions.
+     * his companions, blocking once until the order is complete.
      * Method invoked only by the first student arriving to the restaurant. 
      */
     public void prepareTheOrder()
     {
         //enter critical region
-        mutex.down();
+        lock(Phase.ORDERING);
                 
-        Student s = ((Student) Thread.currentThread());
+        Student s = Student.current();
         
-        //A student has chosen his dish
-        nStudentsChose++;
-                
-        //if the first student did not start to organize the order:
-        if(!firstOrganizedOrder)
-        {
-            //update student sate to Organizing the order
-            s.setStudentState(StudentStates.ORGTOD);
-            repo.updateStudentState(StudentStates.ORGTOD, s.getStudentID());
-
-            //inform that the first student is already organizing the order
-            firstOrganizedOrder = true;
-        }
+        //update student sate to Organizing the order
+        s.setStudentState(StudentStates.ORGTOD);
+        repo.updateStudentState(StudentStates.ORGTOD, s.getStudentID());
 
         //exit critical region
-        mutex.up();
-        
-        //The first student will be locked here, until he is informed that
-        //another student chose a chose
-        courseChosen.down();
-        
-        //enter critical region
-        mutex.down();
-        
-        //inform the other student that he received his order
-        courseInformationAcknowledged.up();
+        unlock(Phase.ORDERING);
         
-        //exit critical region
-        mutex.up();
+        //The first student adds his own choice and will be locked here, until
+        //every companion has added his
+        order.arriveAndAwaitAdvance(s.getStudentID());
     }
     
     
     /**
      * In here, a student informs the first to arrive that he has already
-     * chosen a course.
+     * chosen a course, adding his choice to the order without waiting for
+     * the first student.
      * Method invoked by all the students, except the first one to arrive.
      */
     public void informCompanion()
     {
         //enter critical region
-        mutex.down();
+        lock(Phase.ORDERING);
                
-        Student s = ((Student) Thread.currentThread());
-       
-        //unlocks the student, who is blocked in prepareOrder
-        courseChosen.up();
+        Student s = Student.current();
               
         //update student state to Chatting with companions
         s.setStudentState(StudentStates.CHAWCO);
         repo.updateStudentState(StudentStates.CHAWCO, s.getStudentID());
         
         //exit critical region
-        mutex.up();
+        unlock(Phase.ORDERING);
         
-        //waits for the first student to confirm he received his order
-        courseInformationAcknowledged.down();
+        //adds his choice to the order, unlocking the first student if it was
+        //the last one missing
+        order.arrive(s.getStudentID());
   
         //The student will be blocked here, until his food gets served
-        served[ ((Student) Thread.currentThread()).getStudentID() ].down();
-    }
-    
-    
-    /**
-     * This method guarantees that the order has been organized before the 
-     * waiter is called.
-     * @return <code>true</code> if the first student has already received
-     * the orders from all his companions.
-     */
-    public boolean hasEveryBodyChosen()
-    {        
-        //enter critical region
-        mutex.down();
-            
-        //define stat 
-        boolean stat = false;
-
-        //if all students chose, return true
-        if(nStudentsChose == NSTUDENTS-1)
-            stat = true;
-
-        //exit critical region
-        mutex.up();
-        
-        return stat;
+        served.awaitAdvance(0);
     }
     
     
@@ -406,9 +515,9 @@ public class SharedTable
     public void getThePad()
     {
         //enter critical region
-        mutex.down();
+        lock(Phase.ORDERING);
         
-        Waiter w = ((Waiter) Thread.currentThread());
+        Waiter w = Waiter.current();
         
         //update waiter's state to Taking the order
         w.setWaiterState(WaiterStates.TAKORD);
@@ -420,7 +529,7 @@ public class SharedTable
         courseChosen.up();
         
         //exit critical region
-        mutex.up();
+        unlock(Phase.ORDERING);
         
         //block here until the student describes him order.
         orderDescribed.down();
@@ -437,14 +546,14 @@ public class SharedTable
         courseChosen.down();
         
         //Enter critical region
-        mutex.down();
+        lock(Phase.ORDERING);
         
         //the student will unlock the waiter confirms the 
         //order was described
         orderDescribed.up();
         
         //Leave critical region
-        mutex.up();
+        unlock(Phase.ORDERING);
     }
     
     
@@ -455,9 +564,9 @@ public class SharedTable
     public void joinTheTalk()
     {
         //enter critical region
-        mutex.down();
+        lock(Phase.ORDERING);
 
-        Student s = ((Student) Thread.currentThread());
+        Student s = Student.current();
         
         //after describing the order, the first student joins the conversation
         //and his state is changed to Chatting with companions
@@ -465,26 +574,27 @@ public class SharedTable
         repo.updateStudentState(StudentStates.CHAWCO, s.getStudentID());
         
         //exit critical region
-        mutex.up();
+        unlock(Phase.ORDERING);
         
         //The frst student will be blocked here, until his food gets served
-        served[ ((Student) Thread.currentThread()).getStudentID() ].down();
+        served.awaitAdvance(0);
     }
     
     
     /**
-     * Invoked by the waiter, when he serves a portion, unlocking a student.
+     * Invoked by the waiter, when he serves the portions on his tray.
+     * @param n Number of portions served.
      */
-    public void deliverPortion()
+    public void deliverPortions(int n)
     {
         //enter critical region
-        mutex.down();
+        lock(Phase.SERVICE);
                 
         //Incrementation on the number of portions served
-        portionsServed++;
+        portionsServed += n;
         
         //exit critical region
-        mutex.up();
+        unlock(Phase.SERVICE);
     }
     
     
@@ -494,25 +604,28 @@ public class SharedTable
     public void startEating()
     {
         //enter critical region
-        mutex.down();
+        lock(Phase.EATING);
                
         //Update the student's state to enjoying the meal
-        Student s = ((Student) Thread.currentThread());
+        Student s = Student.current();
         s.setStudentState(StudentStates.ENJTME);
         repo.updateStudentState(StudentStates.ENJTME, s.getStudentID());
         
+        //exit critical region
+        unlock(Phase.EATING);
+        
+        //The meal takes place outside the critical region, so that the 
+        //students eat at the same time and the waiter is not held meanwhile
         try 
         {
-            //get random eating time
-            Thread.sleep((long)(Math.random() * 100));
+            //get random eating time, from the student's own stream, in the 
+            //dinner's time
+            clock.sleep(s.getRandom().nextInt(100));
         } 
         catch (InterruptedException ex) { 
             System.err.print("Unable to make thread sleep, in the startEating() method");
             System.exit(1);
         }
-        
-        //exit critical region
-        mutex.up();
     }
     
     
@@ -522,86 +635,59 @@ public class SharedTable
     public void endEating()
     {
         //enter critical region
-        mutex.down();
-        
-        //increase the number of students who have already eaten
-        NStudsEat++ ;
+        lock(Phase.EATING);
         
         //Update the student state to chatting with companions
-        Student s = ((Student) Thread.currentThread());
+        Student s = Student.current();
+        coursesEaten[s.getStudentID()]++;
         s.setStudentState(StudentStates.CHAWCO);
         repo.updateStudentState(StudentStates.CHAWCO, s.getStudentID());
         
         //exit critical region
-        mutex.up();
+        unlock(Phase.EATING);
     }
     
     
     /**
      * Invoked by each student, to verify if all the students have already eaten.
+     * At every course but the last, the last student to eat returns at once,
+     * to call the waiter, and the others wait for the next course. At the 
+     * last course, the last student to arrive at the restaurant waits for 
+     * everybody to finish and returns, to pay the bill, and the others wait 
+     * for the bill to be payed.
      * @return <code>true</code> if all student have eaten their course.
      */
     public boolean hasEveryBodyFinished()
     {
-        //boolean containig the value to return
-        boolean allHaveEaten = false;
-
-        //enter critical region
-        mutex.down();
+        int studentID = Student.current().getStudentID();
         
-        //If all student have eaten
-        if (NStudsEat == NSTUDENTS)
-        {
-            allHaveEaten =true;
-            //restart the number of student that have eaten 
-            //(because of the next course)
-            NStudsEat=0;
-        }
+        //course the student has just eaten, the next one may already be
+        //served to the others while he gets here (only he updates it)
+        int course = coursesEaten[studentID];
         
-        //exit critical region
-        mutex.up();
+        //the student arrives at the end of the course, the last one to arrive
+        //advancing it
+        boolean allHaveEaten = finished.arrive(studentID);
         
-        //if we are at the last coursw
-        if(currentCourse == NCOURSES)
+        //if we are at the last course
+        if(course == nCourses)
         {
-            //if we are at the last course, and all students have eaten
-            if (allHaveEaten)
-            {
-                //If the student was not the last one to arrive, he has to wake
-                //him up (the last to arrive), and lock himself here, 
-                //waiting for the bill to be payed
-                if( ((Student) Thread.currentThread()).getStudentID() != LAST_ID)
-                {
-                    //unlock the last student to arrive
-                    served[LAST_ID].up();
-                                        
-                    //student blocks himself and turns his flag to false, so that
-                    //he doens't have to pay the bill
-                    allHaveEaten = false;
-                    served [((Student) Thread.currentThread()).getStudentID()].down();
-                }
-            }
-            else
+            //the last student to arrive waits for the others and pays the bill
+            if(studentID == lastID)
             {
-                //If someone has not eaten yet, the student waits for him
-                served [((Student) Thread.currentThread()).getStudentID()].down();
+                finished.awaitAdvance(course - 1);
+                return true;
             }
             
-            //IF we are at the last course, the last student to arrive will have
-            //to return true sometime, so that he can pay the bill
-            if(currentCourse == NCOURSES &&  ((Student) Thread.currentThread()).getStudentID() == LAST_ID )
-            {
-                allHaveEaten = true;
-            }
+            //the others wait for the bill to be payed
+            served.awaitAdvance(course);
+            return false;
         }
         
-        //If we are not at the last course, and not all the students have eaten
-        if(!allHaveEaten && currentCourse < NCOURSES)
-        {  
-            //Student will be blocked here, waiting for the waiter to bring
-            //him some food
-            served [((Student) Thread.currentThread()).getStudentID()].down();
-        }
+        //If not all the students have eaten, the student will be blocked here,
+        //waiting for the waiter to bring him the next course
+        if(!allHaveEaten)
+            served.awaitAdvance(course);
         
         return allHaveEaten;
     }
@@ -613,21 +699,12 @@ public class SharedTable
      */
     public void signalTheWaiter()
     {
-        //enter critical region
-        mutex.down();
-        
-        //count the number of courses taht have been served
-        currentCourse++;
-        
-        //unlock the waiter
+        //unlock the waiter; the bar has its own critical region
         bar.signalTheWaiter();
         
-        //exit critical region
-        mutex.up();
-        
         //the last student eating will be blocked here, waiting for the
         //waiter to serve him his food
-        served [((Student) Thread.currentThread()).getStudentID()].down();
+        served.awaitAdvance(coursesEaten[Student.current().getStudentID()]);
     }
     
     
@@ -640,10 +717,10 @@ public class SharedTable
         boolean stat = false;
         
         //enter critical region
-        mutex.down();
+        lock(Phase.SERVICE);
         
         //if all have been served
-        if(portionsServed == NSTUDENTS )
+        if(portionsServed == nStudents )
         {
             //set the return value to true
             stat=true;
@@ -651,18 +728,12 @@ public class SharedTable
             //restart counter
             portionsServed = 0;
             
-            //The waiter unlocks all the students
-            for(int i = 0; i<NSTUDENTS; i++)
-                served[i].up();
+            //The waiter unlocks all the students, in a single advance
+            served.arrive(0);
         }
         
-        //If waiter have served all portions, he has to return to the bar, but 
-        //get locked there, until the last student eating calls him
-        if(stat)
-            bar.waitForStudentToEat();
-        
         //exit critical region
-        mutex.up();
+        unlock(Phase.SERVICE);
         
         return stat;
     }
@@ -675,9 +746,9 @@ public class SharedTable
     public void shouldHaveArrivedEarlier()
     {
         //enter critical region
-        mutex.down();
+        lock(Phase.BILLING);
 
-        Student s = ((Student) Thread.currentThread());
+        Student s = Student.current();
         
         //call the waiter from the bar
         bar.studentReadyToPayTheBill();
@@ -687,7 +758,7 @@ public class SharedTable
         repo.updateStudentState(StudentStates.PAYTBI, s.getStudentID());
         
         //exit critical region
-        mutex.up();
+        unlock(Phase.BILLING);
         
         //waits for the waiter to arrive
         waiterPresentedTheBill.down();
@@ -701,32 +772,32 @@ public class SharedTable
     public void presentTheBill()
     {
         //enter critical region
-        mutex.down();
+        lock(Phase.BILLING);
         
         //unlocks the last student, who was waiting for the waiter to arrive
         waiterPresentedTheBill.up();
         
-        Waiter w = ((Waiter) Thread.currentThread());
+        Waiter w = Waiter.current();
 
         //update waiter's state to receiving payment
         w.setWaiterState(WaiterStates.RECPAY);
         repo.updateWaiterState(WaiterStates.RECPAY);        
         
         //exit critical region
-        mutex.up();
+        unlock(Phase.BILLING);
         
         //waiter get's locked here, until the last student arriving
         //pays the bill, unlocking him
         billPayed.down();
         
         //enter critical region
-        mutex.down();
+        lock(Phase.BILLING);
         
         //waiter confirms the student he has payed him the bill
         billsPaymentConfirmed.up();
 
         //exit critical region
-        mutex.up();
+        unlock(Phase.BILLING);
     }
     
     
@@ -737,27 +808,19 @@ public class SharedTable
     public void honourTheBill()
     {
         //enter critical region
-        mutex.down();
+        lock(Phase.BILLING);
         
         //unlocks the waiter, who was waiting for the payment
         billPayed.up();
         
         //exit critical region
-        mutex.up();
+        unlock(Phase.BILLING);
         
         //waiter confirms the student has paid him the bill
         billsPaymentConfirmed.down();
 
-        //enter critical region
-        mutex.down();
-        
         //unlock all students, signaling them that the bill was payed
-        for (int i = 0 ; i < NSTUDENTS ; i++)
-            if(i != LAST_ID)
-                served [i].up();
-        
-        //exit critical region
-        mutex.up();
+        served.arrive(0);
     }
     
     
@@ -767,18 +830,25 @@ public class SharedTable
     public void exit()
     {
         //enter critical region
-        mutex.down();
+        lock(Phase.BILLING);
         
-        Student s = ((Student) Thread.currentThread());
+        Student s = Student.current();
 
         //Update the student state to going home
         s.setStudentState(StudentStates.GOINHO);
         repo.updateStudentState(StudentStates.GOINHO, s.getStudentID());
-        
-        //alert the waiter, at the bar, that a student is leaving 
-        bar.studentIsLeaving();
          
         //exit critical region
-        mutex.up();
+        unlock(Phase.BILLING);
+        
+        //alert the waiter, at the bar, that a student is leaving; the bar has
+        //its own critical region
+        bar.studentIsLeaving();
     }
+    
+    
+    /**
+     * @return Contention on the locks of the table.
+     */
+    public TableContention getContention() { return contention; }
 }
@@ -0,0 +1,128 @@
+/*
+ * The problem:
+ * "Events portray activities that take place when a group of students, enrolled in
+ * Computação Distribuída, go to a famous restaurant downtown for a gourmet dinner 
+ * to celebrate the beginning of the second semester. There are three main locations
+ * within the restaurant that should be accounted for: the table where the students 
+ * sit to have their meal, the kitchen where the chef prepares it according to the
+ * orders placed by the students, and the bar where the waiter stands waiting for 
+ * service requests. There are, furthermore, three kinds of interacting entities: 
+ * N students , one waiter and one chef."
+ * 
+ * The main goal of this project is to design and implement a solution to the 
+ * problem given above.
+ * 
+ * This project was developed during the course of Distributed Computing, at the 
+ * University of Aveiro, under the supervision of Prof. António Rui Borges.
+ */
+
+package SharedRegions;
+
+
+/**
+ * Contention on the table's locks: how often the lock of each phase was 
+ * found taken and how long it was waited for.
+ * It is not thread safe, the caller must guarantee mutual exclusion.
+ * @author Daniel Nunes and Rafael Direito
+ */
+public class TableContention 
+{
+    /**
+     * Number of acquisitions, of contended ones, total and longest wait, by 
+     * phase.
+     */
+    private final long[] count, contended, total, max;
+    
+    
+    /**
+     * Empty statistics.
+     */
+    public TableContention()
+    {
+        int n = SharedTable.Phase.values().length;
+        count = new long[n];
+        contended = new long[n];
+        total = new long[n];
+        max = new long[n];
+    }
+    
+    
+    /**
+     * Accounts an acquisition of a lock.
+     * @param phase phase the lock was taken for
+     * @param nanos waiting time, in nanoseconds (zero if the lock was free)
+     */
+    public void record(SharedTable.Phase phase, long nanos)
+    {
+        int p = phase.ordinal();
+        count[p]++;
+        if(nanos > 0)
+        {
+            contended[p]++;
+            total[p] += nanos;
+            if(nanos > max[p])
+                max[p] = nanos;
+        }
+    }
+    
+    
+    /**
+     * Adds the acquisitions accounted by other statistics to these ones.
+     * @param other statistics to be added
+     */
+    public void merge(TableContention other)
+    {
+        for (int p = 0; p < count.length; p++)
+        {
+            count[p] += other.count[p];
+            contended[p] += other.contended[p];
+            total[p] += other.total[p];
+            max[p] = Math.max(max[p], other.max[p]);
+        }
+    }
+    
+    
+    /**
+     * @param phase phase of the dinner
+     * @return Number of acquisitions of the lock.
+     */
+    public long getCount(SharedTable.Phase phase) { return count[phase.ordinal()]; }
+    
+    
+    /**
+     * @param phase phase of the dinner
+     * @return Number of acquisitions that found the lock taken.
+     */
+    public long getContended(SharedTable.Phase phase) { return contended[phase.ordinal()]; }
+    
+    
+    /**
+     * @param phase phase of the dinner
+     * @return Total time waited for the lock, in nanoseconds.
+     */
+    public long getTotalNanos(SharedTable.Phase phase) { return total[phase.ordinal()]; }
+    
+    
+    /**
+     * @param phase phase of the dinner
+     * @return Longest wait for the lock, in nanoseconds.
+     */
+    public long getMaxNanos(SharedTable.Phase phase) { return max[phase.ordinal()]; }
+    
+    
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder();
+        long sum = 0;
+        for (SharedTable.Phase phase : SharedTable.Phase.values())
+        {
+            sb.append(String.format("%-8s n=%-8d contended=%-8d wait=%10.1f us  max=%10.1f us%n", 
+                    phase, getCount(phase), getContended(phase), 
+                    getTotalNanos(phase) / 1e3, getMaxNanos(phase) / 1e3));
+            sum += getTotalNanos(phase);
+        }
+        sb.append(String.format("%-8s %41s wait=%10.1f us%n", "TOTAL", "", sum / 1e3));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,743 @@
+/*
+ * The problem:
+ * "Events portray activities that take place when a group of students, enrolled in
+ * Computação Distribuída, go to a famous restaurant downtown for a gourmet dinner 
+ * to celebrate the beginning of the second semester. There are three main locations
+ * within the restaurant that should be accounted for: the table where the students 
+ * sit to have their meal, the kitchen where the chef prepares it according to the
+ * orders placed by the students, and the bar where the waiter stands waiting for 
+ * service requests. There are, furthermore, three kinds of interacting entities: 
+ * N students , one waiter and one chef."
+ * 
+ * The main goal of this project is to design and implement a solution to the 
+ * problem given above.
+ * 
+ * This project was developed during the course of Distributed Computing, at the 
+ * University of Aveiro, under the supervision of Prof. António Rui Borges.
+ */
+
+package Simulation;
+
+//Import shared repository, service requests and their scheduling
+import SharedRegions.SharedRepo;
+import SharedRegions.Request;
+import SharedRegions.RequestQueue;
+import SharedRegions.QueueingDelays;
+//Import entities states
+import Entities.States.ChefStates;
+import Entities.States.StudentStates;
+import Entities.States.WaiterStates;
+//Import problem's parameters
+import Main.RestaurantConfig;
+import static Main.Simulator.FIRST;
+
+import java.util.ArrayDeque;
+import java.util.SplittableRandom;
+
+
+/**
+ * Dinner run as a discrete event simulation, on a single thread and in 
+ * virtual time.
+ * The students, the waiters and the chefs follow the same protocol as the 
+ * threads of {@link Main.Restaurant}, with the semaphores, barriers and 
+ * FIFOs of the shared regions replaced by their simulated counterparts, and
+ * log the same state changes through the shared repository. Walking and 
+ * eating take random virtual time, as the threads sleep; everything else 
+ * takes none.
+ * Every parameter of the dinner is honoured: the chefs share the portions of
+ * each course and take them from one another as in 
+ * {@link SharedRegions.SharedKitchen}, the bar serves the requests with the 
+ * queue of the configured scheduling policy, stamped in virtual time, the 
+ * waiters salute the students one at a time or in batches, and the pass and 
+ * the tray sizes are kept.
+ * @author Daniel Nunes and Rafael Direito
+ */
+public class DinnerSimulation 
+{
+    /**
+     * Virtual nanoseconds in a millisecond.
+     */
+    private static final long MILLIS = 1000000L;
+    
+    /**
+     * Calendar of events.
+     */
+    private final EventCalendar cal;
+    
+    /**
+     * Shared repository, where the state changes are logged.
+     */
+    private final SharedRepo repo;
+    
+    /**
+     * Dinner's random stream, from which the stream of each student is split
+     * as in {@link Main.Restaurant}.
+     */
+    private final SplittableRandom rand;
+    
+    /**
+     * Dinner's parameters.
+     */
+    private final int nStudents, nCourses, nWaiters, nChefs, traySize;
+    private final boolean batchSalute;
+    
+    /**
+     * Bar: requests waiting for a waiter, one permit per request, the time
+     * they waited and the counters gating the collection of each course.
+     */
+    private final RequestQueue requests;
+    private final QueueingDelays delays;
+    private final SimSemaphore waiterBusy;
+    private int coursesReady, coursesEaten, coursesRequested, numStudentsLeft;
+    
+    /**
+     * Table: students waiting to be saluted, the semaphores of the table and 
+     * the phases of the courses served and eaten.
+     */
+    private final ArrayDeque<Integer> arrivals;
+    private final SimSemaphore[] studentSaluted;
+    private final SimSemaphore studentReadTheMenu, orderComplete, courseChosen, 
+            orderDescribed, waiterPresentedTheBill, billPayed, 
+            billsPaymentConfirmed;
+    private final SimGate served, finished;
+    private int nStudentsSeated, nStudentsChose, nStudentsFinished, 
+            portionsServed, lastID;
+    private boolean saluteRequested;
+    
+    /**
+     * Kitchen: the order, the chefs' confirmation and the pass, as free and
+     * filled slots.
+     */
+    private final SimSemaphore waitingOrder, waitForChef, passFree, passFilled;
+    private int numPortionsCollected;
+    
+    /**
+     * Kitchen: portions of the current course left to each chef, the last 
+     * course each one took his share of, the chefs waiting for the next 
+     * course and the progress of the order.
+     */
+    private final int[] portionsLeft, coursesTaken;
+    private final boolean[] chefIdle;
+    private final SimSemaphore[] courseReady;
+    private int coursesPrepared, numPortionsProduced, numPortionsDelivered, 
+            numCoursesDelivered, chefsClosed;
+    private boolean orderCompleted;
+    
+    
+    /**
+     * Builds the simulated dinner, on a calendar of its own and with the 
+     * random stream of the configuration's seed.
+     * @param config dinner's parameters
+     * @param repo shared repository, with the log already open
+     */
+    public DinnerSimulation(RestaurantConfig config, SharedRepo repo)
+    {
+        this(config, repo, new EventCalendar(), new SplittableRandom(config.getSeed()));
+    }
+    
+    
+    /**
+     * Builds the simulated dinner.
+     * @param config dinner's parameters
+     * @param repo shared repository, with the log already open
+     * @param cal empty calendar the dinner is simulated on, whose time the
+     * repository may be stamping the log with (see {@link VirtualClock})
+     * @param random dinner's random stream, from which the stream of each 
+     * student is split
+     */
+    public DinnerSimulation(RestaurantConfig config, SharedRepo repo, EventCalendar cal,
+            SplittableRandom random)
+    {
+        this.repo = repo;
+        this.cal = cal;
+        nStudents = config.getNStudents();
+        nCourses = config.getNCourses();
+        nWaiters = config.getNWaiters();
+        nChefs = config.getNChefs();
+        traySize = config.getTraySize();
+        batchSalute = config.isBatchSalute();
+        rand = random;
+        
+        //Bar.
+        requests = RequestQueue.forPolicy(config.getBarPolicy(), config.getBarAgingMillis());
+        delays = new QueueingDelays();
+        waiterBusy = new SimSemaphore(cal);
+        
+        //Table.
+        arrivals = new ArrayDeque<>();
+        studentSaluted = new SimSemaphore[nStudents];
+        for (int i = 0; i < nStudents; i++)
+            studentSaluted[i] = new SimSemaphore(cal);
+        studentReadTheMenu = new SimSemaphore(cal);
+        orderComplete = new SimSemaphore(cal);
+        courseChosen = new SimSemaphore(cal);
+        orderDescribed = new SimSemaphore(cal);
+        waiterPresentedTheBill = new SimSemaphore(cal);
+        billPayed = new SimSemaphore(cal);
+        billsPaymentConfirmed = new SimSemaphore(cal);
+        served = new SimGate(cal);
+        finished = new SimGate(cal);
+        
+        //Kitchen, with an empty pass.
+        waitingOrder = new SimSemaphore(cal);
+        waitForChef = new SimSemaphore(cal);
+        passFree = new SimSemaphore(cal);
+        passFilled = new SimSemaphore(cal);
+        for (int i = 0; i < config.getPassSize(); i++)
+            passFree.up();
+        portionsLeft = new int[nChefs];
+        coursesTaken = new int[nChefs];
+        chefIdle = new boolean[nChefs];
+        courseReady = new SimSemaphore[nChefs];
+        for (int c = 0; c < nChefs; c++)
+            courseReady[c] = new SimSemaphore(cal);
+        
+        //Every entity starts at time zero.
+        for (int c = 0; c < nChefs; c++)
+            cal.wake(new ChefProcess(c));
+        for (int w = 0; w < nWaiters; w++)
+            cal.wake(new WaiterProcess());
+        for (int i = 0; i < nStudents; i++)
+            cal.wake(new StudentProcess(i, rand.split()));
+    }
+    
+    
+    /**
+     * Runs the dinner until every entity has ended.
+     * @return Duration of the dinner, in virtual nanoseconds.
+     */
+    public long run()
+    {
+        return cal.run();
+    }
+    
+    
+    /**
+     * @return Number of events processed.
+     */
+    public long getEvents() { return cal.getProcessed(); }
+    
+    
+    /**
+     * @return Virtual time the requests waited at the bar, by kind of request.
+     */
+    public QueueingDelays getQueueingDelays() { return delays; }
+    
+    
+    /**
+     * A request is placed at the bar.
+     * @param type kind of request
+     * @param id student, or course to be collected
+     */
+    private void request(Request.Type type, int id)
+    {
+        requests.add(new Request(type, id, cal.now()));
+        waiterBusy.up();
+    }
+    
+    
+    /**
+     * Requests the collection of the next course, if the chef is dishing it 
+     * and the students have eaten the previous one.
+     */
+    private void requestCollection()
+    {
+        if(coursesRequested < coursesReady && coursesRequested <= coursesEaten)
+        {
+            coursesRequested++;
+            request(Request.Type.COLLECT, coursesRequested);
+        }
+    }
+    
+    
+    /**
+     * Number of portions of each course first given to a chef, as in 
+     * {@link SharedRegions.SharedKitchen}.
+     * @param id chef's ID
+     * @return Number of portions.
+     */
+    private int share(int id)
+    {
+        return nStudents / nChefs + (id < nStudents % nChefs ? 1 : 0);
+    }
+    
+    
+    /**
+     * Takes a portion left to the chef or, if he has none, one left to 
+     * another chef, looked for in the same order as the threads steal them.
+     * @param id chef's ID
+     * @return <code>true</code> if a portion was taken.
+     */
+    private boolean takePortion(int id)
+    {
+        for (int i = 0; i < nChefs; i++)
+            if(portionsLeft[(id + i) % nChefs] > 0)
+            {
+                portionsLeft[(id + i) % nChefs]--;
+                return true;
+            }
+        return false;
+    }
+    
+    
+    /**
+     * Releases the chefs waiting for the next course.
+     */
+    private void wakeIdleChefs()
+    {
+        for (int c = 0; c < nChefs; c++)
+            if(chefIdle[c])
+            {
+                chefIdle[c] = false;
+                courseReady[c].up();
+            }
+    }
+    
+    
+    /**
+     * Random time, in whole milliseconds, as the threads sleep.
+     * @param r stream of the entity
+     * @param maxMillis upper bound, in milliseconds
+     * @return Virtual time, in nanoseconds.
+     */
+    private static long randomMillis(SplittableRandom r, int maxMillis)
+    {
+        return r.nextInt(maxMillis) * MILLIS;
+    }
+    
+    
+    /**
+     * Student's life cycle, as {@link Entities.Student#run()}.
+     */
+    private final class StudentProcess extends SimProcess
+    {
+        private final int id;
+        private final SplittableRandom rand;
+        private int arrivalOrder, course;
+        
+        StudentProcess(int id, SplittableRandom rand)
+        {
+            this.id = id;
+            this.rand = rand;
+        }
+        
+        @Override
+        public void resume()
+        {
+            for (;;)
+            {
+                switch(pc)
+                {
+                    case 0:
+                        //walkABit
+                        pc = 1;
+                        cal.schedule(randomMillis(rand, 300), this);
+                        return;
+                        
+                    case 1:
+                        //enter
+                        repo.updateStudentState(StudentStates.TASATT, id);
+                        if(!batchSalute || !saluteRequested)
+                        {
+                            request(Request.Type.SALUTE, id);
+                            saluteRequested = true;
+                        }
+                        arrivalOrder = nStudentsSeated++;
+                        arrivals.add(id);
+                        if(arrivalOrder == nStudents - 1) lastID = id;
+                        pc = 2;
+                        if(!studentSaluted[id].down(this)) return;
+                        break;
+                        
+                    case 2:
+                        //readTheMenu
+                        repo.updateStudentState(StudentStates.SELTCO, id);
+                        studentReadTheMenu.up();
+                        if(arrivalOrder == FIRST)
+                        {
+                            //prepareTheOrder
+                            repo.updateStudentState(StudentStates.ORGTOD, id);
+                            pc = 3;
+                            if(nStudents > 1 && !orderComplete.down(this)) return;
+                        }
+                        else
+                        {
+                            //informCompanion
+                            repo.updateStudentState(StudentStates.CHAWCO, id);
+                            if(++nStudentsChose == nStudents - 1)
+                                orderComplete.up();
+                            pc = 5;
+                        }
+                        break;
+                        
+                    case 3:
+                        //callTheWaiter and describeTheOrder
+                        request(Request.Type.ORDER, id);
+                        pc = 4;
+                        if(!courseChosen.down(this)) return;
+                        break;
+                        
+                    case 4:
+                        orderDescribed.up();
+                        //joinTheTalk
+                        repo.updateStudentState(StudentStates.CHAWCO, id);
+                        pc = 5;
+                        break;
+                        
+                    case 5:
+                        //waits for the first course
+                        pc = 6;
+                        if(!served.await(this, 0)) return;
+                        break;
+                        
+                    case 6:
+                        //startEating
+                        repo.updateStudentState(StudentStates.ENJTME, id);
+                        pc = 7;
+                        cal.schedule(randomMillis(rand, 100), this);
+                        return;
+                        
+                    case 7:
+                        //endEating and hasEveryBodyFinished
+                        repo.updateStudentState(StudentStates.CHAWCO, id);
+                        course++;
+                        boolean allHaveEaten = ++nStudentsFinished == nStudents;
+                        if(allHaveEaten)
+                        {
+                            nStudentsFinished = 0;
+                            finished.advance();
+                        }
+                        if(course == nCourses)
+                        {
+                            //the last student to arrive pays the bill, the 
+                            //others wait for it
+                            if(id == lastID)
+                            {
+                                pc = 8;
+                                if(!finished.await(this, course - 1)) return;
+                            }
+                            else
+                            {
+                                pc = 11;
+                                if(!served.await(this, course)) return;
+                            }
+                            break;
+                        }
+                        //signalTheWaiter
+                        if(allHaveEaten)
+                        {
+                            coursesEaten++;
+                            requestCollection();
+                        }
+                        pc = 6;
+                        if(!served.await(this, course)) return;
+                        break;
+                        
+                    case 8:
+                        //shouldHaveArrivedEarlier
+                        request(Request.Type.BILL, id);
+                        repo.updateStudentState(StudentStates.PAYTBI, id);
+                        pc = 9;
+                        if(!waiterPresentedTheBill.down(this)) return;
+                        break;
+                        
+                    case 9:
+                        //honourTheBill
+                        billPayed.up();
+                        pc = 10;
+                        if(!billsPaymentConfirmed.down(this)) return;
+                        break;
+                        
+                    case 10:
+                        served.advance();
+                        pc = 11;
+                        break;
+                        
+                    case 11:
+                        //exit
+                        repo.updateStudentState(StudentStates.GOINHO, id);
+                        request(Request.Type.GOODBYE, id);
+                        return;
+                }
+            }
+        }
+    }
+    
+    
+    /**
+     * Waiter's life cycle, as {@link Entities.Waiter#run()}.
+     */
+    private final class WaiterProcess extends SimProcess
+    {
+        /**
+         * Step returning to the bar after a request.
+         */
+        private static final int RETURN = 99;
+        
+        /**
+         * Students saluted whose reading of the menu is still to be waited.
+         */
+        private int nSaluted;
+        
+        @Override
+        public void resume()
+        {
+            for (;;)
+            {
+                switch(pc)
+                {
+                    case 0:
+                        //lookAround
+                        pc = 1;
+                        if(!waiterBusy.down(this)) return;
+                        break;
+                        
+                    case 1:
+                        //take the next request and account its wait
+                        long now = cal.now();
+                        Request req = requests.poll(now);
+                        if(req.getType() != Request.Type.END)
+                            delays.record(req.getType(), now - req.getEnqueued());
+                        switch(req.getType())
+                        {
+                            case SALUTE:
+                                //saluteTheClient, every student waiting in 
+                                //batch salute mode
+                                repo.updateWaiterState(WaiterStates.PREMEN);
+                                if(batchSalute)
+                                {
+                                    nSaluted = arrivals.size();
+                                    saluteRequested = false;
+                                    while(!arrivals.isEmpty())
+                                        studentSaluted[arrivals.poll()].up();
+                                }
+                                else
+                                {
+                                    nSaluted = 1;
+                                    studentSaluted[arrivals.poll()].up();
+                                }
+                                pc = 6;
+                                break;
+                                
+                            case ORDER:
+                                //getThePad
+                                repo.updateWaiterState(WaiterStates.TAKORD);
+                                courseChosen.up();
+                                pc = 2;
+                                if(!orderDescribed.down(this)) return;
+                                break;
+                                
+                            case COLLECT:
+                                pc = 3;
+                                break;
+                                
+                            case BILL:
+                                //prepareTheBill and presentTheBill
+                                repo.updateWaiterState(WaiterStates.PROBIL);
+                                waiterPresentedTheBill.up();
+                                repo.updateWaiterState(WaiterStates.RECPAY);
+                                pc = 5;
+                                if(!billPayed.down(this)) return;
+                                break;
+                                
+                            case GOODBYE:
+                                //sayGoodbye
+                                if(++numStudentsLeft == nStudents)
+                                    for (int w = 0; w < nWaiters; w++)
+                                        request(Request.Type.END, -1);
+                                pc = 0;
+                                break;
+                                
+                            default:
+                                return;
+                        }
+                        break;
+                        
+                    case 2:
+                        //handNoteToTheChef
+                        repo.updateWaiterState(WaiterStates.PLAORD);
+                        for (int c = 0; c < nChefs; c++)
+                            waitingOrder.up();
+                        pc = RETURN;
+                        if(!waitForChef.down(this)) return;
+                        break;
+                        
+                    case 3:
+                        //collectPortions
+                        if(numPortionsCollected == 0)
+                            repo.updateWaiterState(WaiterStates.WAIPOR);
+                        pc = 4;
+                        if(!passFilled.down(this)) return;
+                        break;
+                        
+                    case 4:
+                        //the first portion is taken, the others if they are
+                        //ready and fit in the tray
+                        int n = 1;
+                        int max = Math.min(traySize, nStudents - numPortionsCollected);
+                        while(n < max && passFilled.tryDown())
+                            n++;
+                        for (int i = 0; i < n; i++)
+                            passFree.up();
+                        numPortionsCollected += n;
+                        if(numPortionsCollected == nStudents)
+                            numPortionsCollected = 0;
+                        
+                        //deliverPortions and haveAllClientsBeenServed
+                        portionsServed += n;
+                        pc = 3;
+                        if(portionsServed == nStudents)
+                        {
+                            portionsServed = 0;
+                            served.advance();
+                            pc = RETURN;
+                        }
+                        break;
+                        
+                    case 5:
+                        billsPaymentConfirmed.up();
+                        pc = RETURN;
+                        break;
+                        
+                    case 6:
+                        //waits for each student saluted to read the menu
+                        if(nSaluted == 0)
+                        {
+                            pc = RETURN;
+                            break;
+                        }
+                        nSaluted--;
+                        if(!studentReadTheMenu.down(this)) return;
+                        break;
+                        
+                    case RETURN:
+                        //returnToTheBar
+                        repo.updateWaiterState(WaiterStates.APPSIT);
+                        pc = 0;
+                        break;
+                }
+            }
+        }
+    }
+    
+    
+    /**
+     * Chef's life cycle, as {@link Entities.Chef#run()}.
+     */
+    private final class ChefProcess extends SimProcess
+    {
+        /**
+         * Step ending the chef's service.
+         */
+        private static final int CLOSE = 99;
+        
+        private final int id;
+        private ChefStates state = ChefStates.WAITOD;
+        
+        ChefProcess(int id)
+        {
+            this.id = id;
+        }
+        
+        @Override
+        public void resume()
+        {
+            for (;;)
+            {
+                switch(pc)
+                {
+                    case 0:
+                        //watchTheNews
+                        pc = 1;
+                        if(!waitingOrder.down(this)) return;
+                        break;
+                        
+                    case 1:
+                        //startPreparation, the first chef confirms the order
+                        state = ChefStates.PREPCO;
+                        if(coursesPrepared == 0)
+                        {
+                            waitForChef.up();
+                            coursesPrepared = 1;
+                            repo.updateCourse(coursesPrepared);
+                        }
+                        pc = 2;
+                        break;
+                        
+                    case 2:
+                        //proceedToPresentation
+                        if(orderCompleted)
+                        {
+                            pc = CLOSE;
+                            break;
+                        }
+                        if(coursesTaken[id] < coursesPrepared)
+                        {
+                            coursesTaken[id] = coursesPrepared;
+                            portionsLeft[id] += share(id);
+                        }
+                        if(!takePortion(id))
+                        {
+                            //nothing left in this course: wait for the next one
+                            chefIdle[id] = true;
+                            if(!courseReady[id].down(this)) return;
+                            break;
+                        }
+                        if(state != ChefStates.DISHPO)
+                        {
+                            state = ChefStates.DISHPO;
+                            repo.updateChefState(ChefStates.DISHPO);
+                        }
+                        //alertTheWaiter, leaving the portion at the pass
+                        state = ChefStates.DILPOR;
+                        repo.updateChefState(ChefStates.DILPOR);
+                        if(++numPortionsProduced == 1)
+                        {
+                            coursesReady++;
+                            requestCollection();
+                        }
+                        if(numPortionsProduced == nStudents)
+                            numPortionsProduced = 0;
+                        pc = 3;
+                        if(!passFree.down(this)) return;
+                        break;
+                        
+                    case 3:
+                        passFilled.up();
+                        //haveAllPortionsBeenDelivered
+                        if(++numPortionsDelivered < nStudents)
+                        {
+                            //haveNextPortionReady
+                            state = ChefStates.DISHPO;
+                            repo.updateChefState(ChefStates.DISHPO);
+                            pc = 2;
+                            break;
+                        }
+                        numPortionsDelivered = 0;
+                        //hasTheOrderBeenCompleted
+                        if(++numCoursesDelivered == nCourses)
+                        {
+                            orderCompleted = true;
+                            wakeIdleChefs();
+                            pc = CLOSE;
+                            break;
+                        }
+                        //continuePreparation
+                        state = ChefStates.PREPCO;
+                        coursesPrepared = numCoursesDelivered + 1;
+                        repo.updateCourse(coursesPrepared);
+                        wakeIdleChefs();
+                        pc = 2;
+                        break;
+                        
+                    case CLOSE:
+                        //cleanUp, the last chef closes the kitchen
+                        state = ChefStates.CLOSER;
+                        if(++chefsClosed == nChefs)
+                            repo.updateChefState(ChefStates.CLOSER);
+                        return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * The problem:
+ * "Events portray activities that take place when a group of students, enrolled in
+ * Computação Distribuída, go to a famous restaurant downtown for a gourmet dinner 
+ * to celebrate the beginning of the second semester. There are three main locations
+ * within the restaurant that should be accounted for: the table where the students 
+ * sit to have their meal, the kitchen where the chef prepares it according to the
+ * orders placed by the students, and the bar where the waiter stands waiting for 
+ * service requests. There are, furthermore, three kinds of interacting entities: 
+ * N students , one waiter and one chef."
+ * 
+ * The main goal of this project is to design and implement a solution to the 
+ * problem given above.
+ * 
+ * This project was developed during the course of Distributed Computing, at the 
+ * University of Aveiro, under the supervision of Prof. António Rui Borges.
+ */
+
+package Simulation;
+
+import java.util.ArrayDeque;
+import java.util.PriorityQueue;
+
+
+/**
+ * Calendar of events of a discrete event simulation, in virtual time.
+ * The entities that are woken up at the current instant are kept in a FIFO
+ * and resumed before the clock moves on; those that wait for some time to 
+ * pass are kept in a priority queue, ordered by time and, for the same 
+ * time, by order of scheduling.
+ * It is not thread safe: a simulation runs on a single thread.
+ * @author Daniel Nunes and Rafael Direito
+ */
+public class EventCalendar 
+{
+    /**
+     * Entities to be resumed at the current instant.
+     */
+    private final ArrayDeque<SimProcess> ready;
+    
+    /**
+     * Entities to be resumed in the future.
+     */
+    private final PriorityQueue<Event> future;
+    
+    /**
+     * Current virtual time, in nanoseconds.
+     */
+    private long now;
+    
+    /**
+     * Number of events scheduled so far, to break ties in time.
+     */
+    private long seq;
+    
+    /**
+     * Number of events processed so far.
+     */
+    private long processed;
+    
+    
+    /**
+     * Empty calendar, at time zero.
+     */
+    public EventCalendar()
+    {
+        ready = new ArrayDeque<>();
+        future = new PriorityQueue<>();
+        now = 0;
+        seq = 0;
+        processed = 0;
+    }
+    
+    
+    /**
+     * @return Current virtual time, in nanoseconds.
+     */
+    public long now() { return now; }
+    
+    
+    /**
+     * @return Number of events processed so far.
+     */
+    public long getProcessed() { return processed; }
+    
+    
+    /**
+     * Resumes an entity at the current instant, after the ones already 
+     * woken up.
+     * @param p entity
+     */
+    public void wake(SimProcess p)
+    {
+        ready.add(p);
+    }
+    
+    
+    /**
+     * Resumes an entity once some time has passed.
+     * @param delay virtual time to pass, in nanoseconds
+     * @param p entity
+     */
+    public void schedule(long delay, SimProcess p)
+    {
+        if(delay <= 0)
+            ready.add(p);
+        else
+            future.add(new Event(now + delay, seq++, p));
+    }
+    
+    
+    /**
+     * Runs the simulation until there are no more events.
+     * @return Virtual time of the last event, in nanoseconds.
+     */
+    public long run()
+    {
+        for (;;)
+        {
+            SimProcess p = ready.poll();
+            if(p == null)
+            {
+                //Nothing else happens now, the clock moves to the next event.
+                Event e = future.poll();
+                if(e == null)
+                    return now;
+                now = e.time;
+                p = e.process;
+            }
+            processed++;
+            p.resume();
+        }
+    }
+    
+    
+    /**
+     * Entity to be resumed at a given time.
+     */
+    private static final class Event implements Comparable<Event>
+    {
+        final long time, seq;
+        final SimProcess process;
+        
+        Event(long time, long seq, SimProcess process)
+        {
+            this.time = time;
+            this.seq = seq;
+            this.process = process;
+        }
+        
+        @Override
+        public int compareTo(Event o)
+        {
+            if(time != o.time)
+                return time < o.time ? -1 : 1;
+            return Long.compare(seq, o.seq);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * The problem:
+ * "Events portray activities that take place when a group of students, enrolled in
+ * Computação Distribuída, go to a famous restaurant downtown for a gourmet dinner 
+ * to celebrate the beginning of the second semester. There are three main locations
+ * within the restaurant that should be accounted for: the table where the students 
+ * sit to have their meal, the kitchen where the chef prepares it according to the
+ * orders placed by the students, and the bar where the waiter stands waiting for 
+ * service requests. There are, furthermore, three kinds of interacting entities: 
+ * N students , one waiter and one chef."
+ * 
+ * The main goal of this project is to design and implement a solution to the 
+ * problem given above.
+ * 
+ * This project was developed during the course of Distributed Computing, at the 
+ * University of Aveiro, under the supervision of Prof. António Rui Borges.
+ */
+
+package Simulation;
+
+import java.util.ArrayDeque;
+
+
+/**
+ * Phases of the simulation, with the semantics of 
+ * {@link CommonInfra.PhaseBarrier#awaitAdvance(int) awaitAdvance}: an entity
+ * waits for a phase to be over and every entity waiting for it is woken up 
+ * when the phase advances.
+ * @author Daniel Nunes and Rafael Direito
+ */
+public class SimGate 
+{
+    /**
+     * Calendar where the entities are woken up.
+     */
+    private final EventCalendar cal;
+    
+    /**
+     * Current phase.
+     */
+    private int phase;
+    
+    /**
+     * Entities waiting for a phase to be over.
+     */
+    private ArrayDeque<SimProcess> waiting, pending;
+    
+    
+    /**
+     * Gate in phase zero.
+     * @param cal calendar of the simulation
+     */
+    public SimGate(EventCalendar cal)
+    {
+        this.cal = cal;
+        phase = 0;
+        waiting = new ArrayDeque<>();
+        pending = new ArrayDeque<>();
+    }
+    
+    
+    /**
+     * Waits for a phase to be over. If it is not, the entity is blocked and 
+     * must return from its step; it is resumed when the phase is over.
+     * @param p calling entity
+     * @param ph phase number
+     * @return <code>true</code> if the phase is already over
+     */
+    public boolean await(SimProcess p, int ph)
+    {
+        if(phase > ph)
+            return true;
+        p.awaiting = ph;
+        waiting.add(p);
+        return false;
+    }
+    
+    
+    /**
+     * Advances the phase, waking up the entities that were waiting for it.
+     */
+    public void advance()
+    {
+        phase++;
+        SimProcess p;
+        while((p = waiting.poll()) != null)
+            if(phase > p.awaiting)
+                cal.wake(p);
+            else
+                pending.add(p);
+        
+        //The entities still waiting keep their order.
+        ArrayDeque<SimProcess> tmp = waiting;
+        waiting = pending;
+        pending = tmp;
+    }
+    
+    
+    /**
+     * @return Current phase.
+     */
+    public int phase() { return phase; }
+}
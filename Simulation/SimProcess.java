@@ -0,0 +1,46 @@
+/*
+ * The problem:
+ * "Events portray activities that take place when a group of students, enrolled in
+ * Computação Distribuída, go to a famous restaurant downtown for a gourmet dinner 
+ * to celebrate the beginning of the second semester. There are three main locations
+ * within the restaurant that should be accounted for: the table where the students 
+ * sit to have their meal, the kitchen where the chef prepares it according to the
+ * orders placed by the students, and the bar where the waiter stands waiting for 
+ * service requests. There are, furthermore, three kinds of interacting entities: 
+ * N students , one waiter and one chef."
+ * 
+ * The main goal of this project is to design and implement a solution to the 
+ * problem given above.
+ * 
+ * This project was developed during the course of Distributed Computing, at the 
+ * University of Aveiro, under the supervision of Prof. António Rui Borges.
+ */
+
+package Simulation;
+
+
+/**
+ * Entity of the simulation, written as a state machine.
+ * Each call of {@link #resume() resume} runs the entity from its current 
+ * step until it blocks or waits for some time to pass, leaving in 
+ * {@link #pc} the step to be taken when it is resumed.
+ * @author Daniel Nunes and Rafael Direito
+ */
+public abstract class SimProcess 
+{
+    /**
+     * Next step of the entity's life cycle.
+     */
+    protected int pc;
+    
+    /**
+     * Phase of a {@link SimGate} the entity is waiting for to be over.
+     */
+    int awaiting;
+    
+    
+    /**
+     * Runs the entity until it blocks, waits or ends.
+     */
+    public abstract void resume();
+}
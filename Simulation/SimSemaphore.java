@@ -0,0 +1,103 @@
+/*
+ * The problem:
+ * "Events portray activities that take place when a group of students, enrolled in
+ * Computação Distribuída, go to a famous restaurant downtown for a gourmet dinner 
+ * to celebrate the beginning of the second semester. There are three main locations
+ * within the restaurant that should be accounted for: the table where the students 
+ * sit to have their meal, the kitchen where the chef prepares it according to the
+ * orders placed by the students, and the bar where the waiter stands waiting for 
+ * service requests. There are, furthermore, three kinds of interacting entities: 
+ * N students , one waiter and one chef."
+ * 
+ * The main goal of this project is to design and implement a solution to the 
+ * problem given above.
+ * 
+ * This project was developed during the course of Distributed Computing, at the 
+ * University of Aveiro, under the supervision of Prof. António Rui Borges.
+ */
+
+package Simulation;
+
+import java.util.ArrayDeque;
+
+
+/**
+ * Semaphore of the simulation, with the semantics of 
+ * {@link CommonInfra.Semaphore}: an entity that finds no permit is blocked,
+ * in arrival order, until an up operation hands it one.
+ * @author Daniel Nunes and Rafael Direito
+ */
+public class SimSemaphore 
+{
+    /**
+     * Calendar where the entities are woken up.
+     */
+    private final EventCalendar cal;
+    
+    /**
+     * Number of available permits.
+     */
+    private int permits;
+    
+    /**
+     * Entities blocked waiting for a permit.
+     */
+    private final ArrayDeque<SimProcess> waiting;
+    
+    
+    /**
+     * Semaphore with no permits available.
+     * @param cal calendar of the simulation
+     */
+    public SimSemaphore(EventCalendar cal)
+    {
+        this.cal = cal;
+        permits = 0;
+        waiting = new ArrayDeque<>();
+    }
+    
+    
+    /**
+     * Down operation. If there is no permit, the entity is blocked and must
+     * return from its step; it is resumed when a permit is handed to it.
+     * @param p calling entity
+     * @return <code>true</code> if a permit was taken, <code>false</code> if
+     * the entity was blocked
+     */
+    public boolean down(SimProcess p)
+    {
+        if(permits > 0)
+        {
+            permits--;
+            return true;
+        }
+        waiting.add(p);
+        return false;
+    }
+    
+    
+    /**
+     * Non-blocking down operation.
+     * @return <code>true</code> if a permit was taken
+     */
+    public boolean tryDown()
+    {
+        if(permits == 0)
+            return false;
+        permits--;
+        return true;
+    }
+    
+    
+    /**
+     * Up operation, handing the permit to the first entity blocked, if any.
+     */
+    public void up()
+    {
+        SimProcess p = waiting.poll();
+        if(p != null)
+            cal.wake(p);
+        else
+            permits++;
+    }
+}
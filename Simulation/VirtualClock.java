@@ -0,0 +1,68 @@
+/*
+ * The problem:
+ * "Events portray activities that take place when a group of students, enrolled in
+ * Computação Distribuída, go to a famous restaurant downtown for a gourmet dinner 
+ * to celebrate the beginning of the second semester. There are three main locations
+ * within the restaurant that should be accounted for: the table where the students 
+ * sit to have their meal, the kitchen where the chef prepares it according to the
+ * orders placed by the students, and the bar where the waiter stands waiting for 
+ * service requests. There are, furthermore, three kinds of interacting entities: 
+ * N students , one waiter and one chef."
+ * 
+ * The main goal of this project is to design and implement a solution to the 
+ * problem given above.
+ * 
+ * This project was developed during the course of Distributed Computing, at the 
+ * University of Aveiro, under the supervision of Prof. António Rui Borges.
+ */
+
+package Simulation;
+
+//Import the time source of the log
+import CommonInfra.TimeSource;
+
+
+/**
+ * Time source whose simulated time is the virtual time of an event calendar,
+ * so that the log of a simulated dinner is stamped as the log of a threaded 
+ * one. It is not a {@link CommonInfra.Clock}: a simulated entity lets time go
+ * by scheduling itself on the calendar, not sleeping.
+ * @author Daniel Nunes and Rafael Direito
+ */
+public class VirtualClock implements TimeSource
+{
+    /**
+     * Calendar giving the time.
+     */
+    private final EventCalendar cal;
+    
+    /**
+     * Value of <code>System.nanoTime()</code> when the clock was created.
+     */
+    private final long start;
+    
+    
+    /**
+     * Clock following the time of a calendar.
+     * @param cal event calendar
+     */
+    public VirtualClock(EventCalendar cal)
+    {
+        this.cal = cal;
+        start = System.nanoTime();
+    }
+    
+    
+    /**
+     * @return Wall time elapsed since the clock was created, in nanoseconds.
+     */
+    @Override
+    public long wallNanos() { return System.nanoTime() - start; }
+    
+    
+    /**
+     * @return Virtual time of the calendar, in nanoseconds.
+     */
+    @Override
+    public long simNanos() { return cal.now(); }
+}